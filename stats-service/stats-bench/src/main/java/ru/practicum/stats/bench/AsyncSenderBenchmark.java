@@ -0,0 +1,88 @@
+package ru.practicum.stats.bench;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.web.client.RestTemplate;
+import ru.practicum.stats.client.AsyncStatsSender;
+import ru.practicum.stats.client.ShardRouter;
+import ru.practicum.stats.client.StatsClient;
+import ru.practicum.stats.dto.EndpointHitDto;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caller latency of {@link StatsClient#addStats} with and without {@link AsyncStatsSender}: for each mode of
+ * {@code --modes} one thread adds {@code --hits} hits one by one, and the call latencies and the time until every hit
+ * is sent or dropped are printed; in the async mode that includes draining the queue on stop, whose meters are printed
+ * too.
+ * Failed sync calls are counted, so the modes can also be compared with the server stopped. Options: {@code --url
+ * --hits --modes=sync,async --capacity --flush-size --flush-interval-ms --overflow --max-retries} and those of
+ * {@link HitGenerator}.
+ */
+final class AsyncSenderBenchmark {
+    private static final long OFFER_TIMEOUT_MS = 50;
+    private static final long RETRY_BACKOFF_MS = 100;
+    private static final long MAX_RETRY_BACKOFF_MS = 5000;
+    private static final long DRAIN_TIMEOUT_MS = 30_000;
+
+    private final BenchOptions options;
+
+    AsyncSenderBenchmark(BenchOptions options) {
+        this.options = options;
+    }
+
+    void run() throws Exception {
+        String url = options.get("url", "http://localhost:9090");
+        int hits = options.getInt("hits", 3000);
+        String modes = options.get("modes", "sync,async");
+        int capacity = options.getInt("capacity", 10_000);
+        int flushSize = options.getInt("flush-size", 500);
+        long flushIntervalMs = options.getLong("flush-interval-ms", 200);
+        AsyncStatsSender.OverflowPolicy overflow = AsyncStatsSender.OverflowPolicy.valueOf(
+                options.get("overflow", "drop").toUpperCase());
+        int maxRetries = options.getInt("max-retries", 5);
+        HitGenerator generator = HitGenerator.fromOptions(options);
+        System.out.println("async " + options);
+
+        ShardRouter shardRouter = new ShardRouter(url, 1);
+        RestTemplate restTemplate = new RestTemplate();
+        for (String mode : modes.split(",")) {
+            List<EndpointHitDto> load = generator.next(hits);
+            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+            AsyncStatsSender sender = null;
+            if ("async".equals(mode)) {
+                sender = new AsyncStatsSender(shardRouter, restTemplate, Optional.empty(), meterRegistry, capacity,
+                        flushSize, flushIntervalMs, overflow, OFFER_TIMEOUT_MS, maxRetries, RETRY_BACKOFF_MS,
+                        MAX_RETRY_BACKOFF_MS, DRAIN_TIMEOUT_MS);
+                sender.start();
+            }
+            StatsClient client = new StatsClient(shardRouter, restTemplate, Optional.empty(),
+                    Optional.ofNullable(sender), Optional.empty(), Optional.empty());
+            Latencies latencies = new Latencies(hits);
+            long failed = 0;
+            long startedAt = System.nanoTime();
+            for (EndpointHitDto hit : load) {
+                long calledAt = System.nanoTime();
+                try {
+                    client.addStats(hit);
+                } catch (RuntimeException e) {
+                    failed++;
+                }
+                latencies.add(System.nanoTime() - calledAt);
+            }
+            long calledMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            if (sender != null) {
+                sender.stop();
+            }
+            System.out.printf("%-5s %d calls in %d ms, %d failed; per call %s; done after %d ms%n", mode, hits,
+                    calledMs, failed, latencies.summary(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            for (Meter meter : meterRegistry.getMeters()) {
+                System.out.printf("%-5s %s%s %s%n", mode, meter.getId().getName(), meter.getId().getTags(),
+                        meter.measure());
+            }
+        }
+    }
+}
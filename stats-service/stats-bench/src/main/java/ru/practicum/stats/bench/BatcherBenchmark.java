@@ -0,0 +1,133 @@
+package ru.practicum.stats.bench;
+
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.web.client.RestTemplate;
+import ru.practicum.stats.client.ShardRouter;
+import ru.practicum.stats.client.StatsBatcher;
+import ru.practicum.stats.client.StatsClient;
+import ru.practicum.stats.client.StatsClientConfig;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Uri lookups of {@link StatsClient#getStats} with and without {@link StatsBatcher}: for each mode of {@code --modes}
+ * and each caller count of {@code --callers}, closed-loop callers look up {@code --uris-per-lookup} random uris out of
+ * {@code --uris} over one shared range for {@code --seconds}. Lookups per second, their latencies and the number of
+ * {@code /stats} requests sent are printed, and every answer is checked against the stats of the whole range. Options:
+ * {@code --url --modes=off,on --callers=1,4,32 --seconds --uris --uris-per-lookup --window-ms --max-uris --start
+ * --end}.
+ */
+final class BatcherBenchmark {
+    private static final long CONNECT_TIMEOUT_MS = 1000;
+    private static final long READ_TIMEOUT_MS = 5000;
+
+    private final BenchOptions options;
+
+    BatcherBenchmark(BenchOptions options) {
+        this.options = options;
+    }
+
+    void run() throws Exception {
+        String url = options.get("url", "http://localhost:9090");
+        String modes = options.get("modes", "off,on");
+        String callerCounts = options.get("callers", "1,4,32");
+        long seconds = options.getLong("seconds", 10);
+        int uris = options.getInt("uris", 50);
+        int urisPerLookup = options.getInt("uris-per-lookup", 3);
+        long windowMs = options.getLong("window-ms", 5);
+        int maxUris = options.getInt("max-uris", 100);
+        String start = options.get("start", "2024-01-01 00:00:00");
+        String end = options.get("end", "2024-01-31 00:00:00");
+        System.out.println("batcher " + options);
+
+        AtomicLong requests = new AtomicLong();
+        RestTemplateBuilder counting = new RestTemplateBuilder().additionalInterceptors((request, body, execution) -> {
+            requests.incrementAndGet();
+            return execution.execute(request, body);
+        });
+        RestTemplate restTemplate = new StatsClientConfig().statsRestTemplate(counting, HttpClient.Version.HTTP_1_1,
+                CONNECT_TIMEOUT_MS, READ_TIMEOUT_MS);
+        ShardRouter shardRouter = new ShardRouter(url, 1);
+        Map<List<String>, Long> expected = new HashMap<>();
+        for (ViewStatsDto viewStats : new StatsClient(shardRouter, restTemplate, Optional.empty(), Optional.empty(),
+                Optional.empty(), Optional.empty()).getStats(start, end, null, false)) {
+            expected.put(List.of(viewStats.getApp(), viewStats.getUri()), viewStats.getHits());
+        }
+
+        for (String mode : modes.split(",")) {
+            StatsBatcher batcher = "on".equals(mode) ? new StatsBatcher(windowMs, maxUris) : null;
+            StatsClient client = new StatsClient(shardRouter, restTemplate, Optional.empty(), Optional.empty(),
+                    Optional.empty(), Optional.ofNullable(batcher));
+            for (String callers : callerCounts.split(",")) {
+                requests.set(0);
+                run(client, mode, Integer.parseInt(callers), seconds, uris, urisPerLookup, start, end, expected,
+                        requests);
+            }
+        }
+    }
+
+    private static void run(StatsClient client, String mode, int callers, long seconds, int uris, int urisPerLookup,
+                            String start, String end, Map<List<String>, Long> expected, AtomicLong requests)
+            throws Exception {
+        Latencies latencies = new Latencies(10_000_000);
+        AtomicLong lookups = new AtomicLong();
+        AtomicLong wrong = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> tasks = new ArrayList<>(callers);
+            for (int c = 0; c < callers; c++) {
+                SplittableRandom random = new SplittableRandom(c);
+                tasks.add(executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        Set<String> lookup = new LinkedHashSet<>();
+                        while (lookup.size() < urisPerLookup) {
+                            lookup.add("/events/" + random.nextInt(uris));
+                        }
+                        long calledAt = System.nanoTime();
+                        List<ViewStatsDto> stats = client.getStats(start, end, List.copyOf(lookup), false);
+                        latencies.add(System.nanoTime() - calledAt);
+                        lookups.incrementAndGet();
+                        if (!matches(stats, lookup, expected)) {
+                            wrong.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        }
+        System.out.printf("batch %-3s %d callers: %.0f lookups/s, %d /stats requests, %d wrong; per lookup %s%n",
+                mode, callers, lookups.get() / (double) seconds, requests.get(), wrong.get(), latencies.summary());
+    }
+
+    private static boolean matches(List<ViewStatsDto> stats, Set<String> lookup,
+                                   Map<List<String>, Long> expected) {
+        long entries = expected.keySet().stream().filter(appUri -> lookup.contains(appUri.get(1))).count();
+        if (stats.size() != entries) {
+            return false;
+        }
+        for (ViewStatsDto viewStats : stats) {
+            if (!lookup.contains(viewStats.getUri()) || !viewStats.getHits()
+                    .equals(expected.get(List.of(viewStats.getApp(), viewStats.getUri())))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,46 @@
+package ru.practicum.stats.bench;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Options of a benchmark given as {@code --name=value}; every option has a default, and the values used are printed
+ * with the results so a run can be repeated.
+ */
+final class BenchOptions {
+    private final Map<String, String> values = new LinkedHashMap<>();
+    private final Map<String, String> used = new LinkedHashMap<>();
+
+    static BenchOptions parse(String[] args) {
+        BenchOptions options = new BenchOptions();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    String get(String name, String defaultValue) {
+        String value = values.getOrDefault(name, defaultValue);
+        used.put(name, value);
+        return value;
+    }
+
+    int getInt(String name, int defaultValue) {
+        return Integer.parseInt(get(name, String.valueOf(defaultValue)));
+    }
+
+    long getLong(String name, long defaultValue) {
+        return Long.parseLong(get(name, String.valueOf(defaultValue)));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        used.forEach((name, value) -> builder.append(" --").append(name).append('=').append(value));
+        return builder.toString().strip();
+    }
+}
@@ -0,0 +1,155 @@
+package ru.practicum.stats.bench;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+import ru.practicum.stats.client.ShardRouter;
+import ru.practicum.stats.client.StatsClient;
+import ru.practicum.stats.client.StatsClientConfig;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.lang.management.ManagementFactory;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and client allocation of {@link StatsClient#getStats} per transport: {@code legacy} is the former plain
+ * {@link RestTemplate} that read the body into a string and parsed it with a new {@link ObjectMapper}, {@code http1}
+ * and {@code http2} the JDK client of {@link StatsClientConfig}. For each transport and each thread count of
+ * {@code --threads}, {@code --calls} calls are made after {@code --warmup} ones, and latencies, calls per second and
+ * bytes allocated per call by all threads are printed. Each thread asks for its own {@code --uris} uris over a fixed
+ * range, so concurrent calls are not coalesced by the client, and after the first call the server answers from its
+ * result cache and the client side dominates. Options: {@code --url --transports=legacy,http1,http2 --threads=1,4
+ * --calls --warmup --uris --start --end}.
+ */
+final class ClientTransportBenchmark {
+    private static final long CONNECT_TIMEOUT_MS = 1000;
+    private static final long READ_TIMEOUT_MS = 5000;
+
+    private final BenchOptions options;
+
+    ClientTransportBenchmark(BenchOptions options) {
+        this.options = options;
+    }
+
+    void run() throws Exception {
+        String url = options.get("url", "http://localhost:9090");
+        String transports = options.get("transports", "legacy,http1,http2");
+        String threadCounts = options.get("threads", "1,4");
+        int calls = options.getInt("calls", 5000);
+        int warmup = options.getInt("warmup", 500);
+        int uriCount = options.getInt("uris", 10);
+        String start = options.get("start", "2024-01-01 00:00:00");
+        String end = options.get("end", "2024-01-31 00:00:00");
+        System.out.println("transport " + options);
+
+        int maxThreads = 1;
+        for (String threads : threadCounts.split(",")) {
+            maxThreads = Math.max(maxThreads, Integer.parseInt(threads));
+        }
+        List<List<String>> uris = new ArrayList<>(maxThreads);
+        for (int t = 0; t < maxThreads; t++) {
+            List<String> threadUris = new ArrayList<>(uriCount);
+            for (int i = 0; i < uriCount; i++) {
+                threadUris.add("/events/" + (t * uriCount + i));
+            }
+            uris.add(threadUris);
+        }
+        for (String transport : transports.split(",")) {
+            StatsCall call = client(url, transport, start, end);
+            for (int i = 0; i < warmup; i++) {
+                call.run(uris.get(i % maxThreads));
+            }
+            for (String threads : threadCounts.split(",")) {
+                run(transport, call, uris, Integer.parseInt(threads), calls);
+            }
+        }
+    }
+
+    private static void run(String transport, StatsCall call, List<List<String>> uris, int threads, int calls)
+            throws Exception {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Latencies latencies = new Latencies(calls + threads);
+        int perThread = calls / threads;
+        long allocatedAtStart = threadBean.getTotalThreadAllocatedBytes();
+        long startedAt = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<?>> tasks = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                List<String> threadUris = uris.get(t);
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        long calledAt = System.nanoTime();
+                        call.run(threadUris);
+                        latencies.add(System.nanoTime() - calledAt);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        long allocated = threadBean.getTotalThreadAllocatedBytes() - allocatedAtStart;
+        int made = perThread * threads;
+        System.out.printf("%-6s %d threads: %.0f calls/s, %.1f KB/call; per call %s%n", transport, threads,
+                made * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos, allocated / 1024.0 / made,
+                latencies.summary());
+    }
+
+    private static StatsCall client(String url, String transport, String start, String end) {
+        if ("legacy".equals(transport)) {
+            return legacy(new RestTemplate(), url, start, end);
+        }
+        HttpClient.Version version = "http2".equals(transport) ? HttpClient.Version.HTTP_2
+                : HttpClient.Version.HTTP_1_1;
+        RestTemplate restTemplate = new StatsClientConfig().statsRestTemplate(new RestTemplateBuilder(), version,
+                CONNECT_TIMEOUT_MS, READ_TIMEOUT_MS);
+        StatsClient client = new StatsClient(new ShardRouter(url, 1), restTemplate, Optional.empty(),
+                Optional.empty(), Optional.empty(), Optional.empty());
+        return uris -> check(client.getStats(start, end, uris, false), uris);
+    }
+
+    /**
+     * The request of {@link StatsClient} before the JDK transport, with the body read into a string.
+     */
+    private static StatsCall legacy(RestTemplate restTemplate, String url, String start, String end) {
+        return uris -> {
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("start", start);
+            parameters.put("end", end);
+            parameters.put("uris", String.join(",", uris));
+            parameters.put("unique", false);
+            ResponseEntity<String> response = restTemplate.getForEntity(
+                    url + "/stats?start={start}&end={end}&uris={uris}&unique={unique}", String.class, parameters);
+            try {
+                check(Arrays.asList(new ObjectMapper().readValue(response.getBody(), ViewStatsDto[].class)), uris);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private static void check(List<ViewStatsDto> viewStats, List<String> uris) {
+        if (viewStats.isEmpty()) {
+            throw new IllegalStateException("No stats for " + uris + ", load hits into the range first");
+        }
+    }
+
+    private interface StatsCall {
+        void run(List<String> uris);
+    }
+}
@@ -0,0 +1,71 @@
+package ru.practicum.stats.bench;
+
+import ru.practicum.stats.dto.EndpointHitDto;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic hits: {@code apps} apps, {@code uris} uris {@code /events/N}, IPv4 addresses drawn from
+ * {@code ips} distinct ones and timestamps spread evenly over {@code days} days from {@code start}.
+ */
+final class HitGenerator {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final SplittableRandom random;
+    private final int apps;
+    private final int uris;
+    private final int ips;
+    private final LocalDateTime start;
+    private final long seconds;
+
+    HitGenerator(long seed, int apps, int uris, int ips, LocalDateTime start, int days) {
+        this.random = new SplittableRandom(seed);
+        this.apps = apps;
+        this.uris = uris;
+        this.ips = ips;
+        this.start = start;
+        this.seconds = days * 86_400L;
+    }
+
+    static HitGenerator fromOptions(BenchOptions options) {
+        return new HitGenerator(options.getLong("seed", 42), options.getInt("apps", 2),
+                options.getInt("uris", 1000), options.getInt("ips", 100_000),
+                LocalDateTime.parse(options.get("start", "2024-01-01 00:00:00"), FORMATTER),
+                options.getInt("days", 30));
+    }
+
+    EndpointHitDto next() {
+        int ip = random.nextInt(ips);
+        return new EndpointHitDto(null, "app-" + random.nextInt(apps), "/events/" + random.nextInt(uris),
+                "10." + (ip >>> 16 & 0xff) + "." + (ip >>> 8 & 0xff) + "." + (ip & 0xff),
+                start.plusSeconds(random.nextLong(seconds)).format(FORMATTER));
+    }
+
+    List<EndpointHitDto> next(int count) {
+        List<EndpointHitDto> hits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            hits.add(next());
+        }
+        return hits;
+    }
+
+    LocalDateTime getStart() {
+        return start;
+    }
+
+    LocalDateTime getEnd() {
+        return start.plusSeconds(seconds);
+    }
+
+    int getUris() {
+        return uris;
+    }
+
+    static String format(LocalDateTime time) {
+        return time.format(FORMATTER);
+    }
+}
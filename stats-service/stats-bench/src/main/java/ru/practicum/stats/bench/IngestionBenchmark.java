@@ -0,0 +1,124 @@
+package ru.practicum.stats.bench;
+
+import ru.practicum.stats.client.BinaryStatsSender;
+import ru.practicum.stats.client.ShardRouter;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.HitBatchResultDto;
+
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of {@code POST /hit}, {@code POST /hit/batch} and the binary protocol: {@code --hits} synthetic hits are
+ * sent by {@code --threads} threads, one per request or {@code --batch-size} per request or frame, and hits per second
+ * and request latencies are printed for each mode. The binary mode sends through {@link BinaryStatsSender} to
+ * {@code --binary-port} of the server, which needs {@code --stats.binary.enabled=true}. With {@code --server-pid} of a
+ * server on the same host its CPU time per hit is printed too. Requests answered with 429 are repeated, so run the
+ * server with {@code --stats.admission.app-rate=0} to measure writes rather than app quotas. Options:
+ * {@code --url --hits --threads --batch-size --modes=single,batch,binary --binary-port --server-pid} and those of
+ * {@link HitGenerator}.
+ */
+final class IngestionBenchmark {
+    private static final long RETRY_DELAY_MS = 10;
+    private static final int MAX_FRAME_BYTES = 1 << 20;
+    private static final int MAX_DICTIONARY_SIZE = 100_000;
+    private static final int CONNECT_TIMEOUT_MS = 1000;
+    private static final int READ_TIMEOUT_MS = 30_000;
+
+    private final BenchOptions options;
+
+    IngestionBenchmark(BenchOptions options) {
+        this.options = options;
+    }
+
+    void run() throws Exception {
+        String url = options.get("url", "http://localhost:9090");
+        HttpBench http = new HttpBench(url);
+        int hits = options.getInt("hits", 20_000);
+        int threads = options.getInt("threads", 4);
+        int batchSize = options.getInt("batch-size", 500);
+        String modes = options.get("modes", "single,batch");
+        int binaryPort = options.getInt("binary-port", 9091);
+        ServerCpu serverCpu = ServerCpu.fromOptions(options);
+        HitGenerator generator = HitGenerator.fromOptions(options);
+        System.out.println("ingest " + options);
+        BinaryStatsSender binary = new BinaryStatsSender(new ShardRouter(url, 1), binaryPort, MAX_FRAME_BYTES,
+                MAX_DICTIONARY_SIZE, CONNECT_TIMEOUT_MS, READ_TIMEOUT_MS);
+        try {
+            for (String mode : modes.split(",")) {
+                List<EndpointHitDto> load = generator.next(hits);
+                run(http, binary, serverCpu, mode, load, threads, batchSize);
+            }
+        } finally {
+            binary.destroy();
+        }
+    }
+
+    private void run(HttpBench http, BinaryStatsSender binary, ServerCpu serverCpu, String mode,
+                     List<EndpointHitDto> load, int threads, int batchSize) throws Exception {
+        boolean single = "single".equals(mode);
+        int step = single ? 1 : batchSize;
+        Latencies latencies = new Latencies(load.size() / step + threads);
+        AtomicLong accepted = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        AtomicLong throttled = new AtomicLong();
+        int perThread = (load.size() + threads - 1) / threads;
+        long cpuAtStart = serverCpu.nanos();
+        long startedAt = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<?>> tasks = new ArrayList<>(threads);
+            for (int from = 0; from < load.size(); from += perThread) {
+                List<EndpointHitDto> part = load.subList(from, Math.min(load.size(), from + perThread));
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < part.size(); i += step) {
+                        long sentAt = System.nanoTime();
+                        if ("binary".equals(mode)) {
+                            accepted.addAndGet(binary.send(part.subList(i, Math.min(part.size(), i + step)))
+                                    .getAccepted());
+                            latencies.add(System.nanoTime() - sentAt);
+                            continue;
+                        }
+                        HttpResponse<String> response;
+                        while (true) {
+                            response = single
+                                    ? http.post("/hit", part.get(i))
+                                    : http.post("/hit/batch", part.subList(i, Math.min(part.size(), i + step)));
+                            if (response.statusCode() != 429) {
+                                break;
+                            }
+                            throttled.incrementAndGet();
+                            Thread.sleep(RETRY_DELAY_MS);
+                        }
+                        latencies.add(System.nanoTime() - sentAt);
+                        if (response.statusCode() != 201) {
+                            failed.addAndGet(Math.min(step, part.size() - i));
+                        } else if (single) {
+                            accepted.incrementAndGet();
+                        } else {
+                            accepted.addAndGet(http.read(response.body(), HitBatchResultDto.class).getAccepted());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        System.out.printf("%-6s %d hits in %d ms: %.0f hits/s, accepted %d, failed %d, throttled requests %d; "
+                        + "per request %s%n", mode, load.size(), elapsedMs,
+                load.size() * 1000.0 / Math.max(1, elapsedMs), accepted.get(), failed.get(), throttled.get(),
+                latencies.summary());
+        if (serverCpu.isKnown()) {
+            System.out.printf("%-6s server CPU %.1f us/hit%n", mode,
+                    (serverCpu.nanos() - cpuAtStart) / 1000.0 / load.size());
+        }
+    }
+}
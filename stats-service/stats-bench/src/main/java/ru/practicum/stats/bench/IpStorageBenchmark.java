@@ -0,0 +1,95 @@
+package ru.practicum.stats.bench;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Text against binary storage of hit IPs on PostgreSQL: two unlogged copies of a synthetic {@code hits} table with
+ * {@code --rows} rows over {@code --ips} distinct IPv4 addresses and {@code --uris} uris are generated, one with the
+ * old {@code VARCHAR(45)} column and one with the 4-byte {@code BYTEA} form the stats-server stores. The average
+ * column size, heap and {@code (uri, timestamp, ip)} index sizes and the timings of whole-table and per-uri
+ * {@code COUNT(DISTINCT ip)} are printed; the tables are dropped afterwards. Options: {@code --jdbc-url --user
+ * --password --rows --ips --uris --runs}.
+ */
+final class IpStorageBenchmark {
+    private static final String[] TABLES = {"bench_hits_text", "bench_hits_binary"};
+
+    private final BenchOptions options;
+
+    IpStorageBenchmark(BenchOptions options) {
+        this.options = options;
+    }
+
+    void run() throws SQLException {
+        String url = options.get("jdbc-url", "jdbc:postgresql://localhost:5432/stats");
+        String user = options.get("user", "postgres");
+        String password = options.get("password", "postgres");
+        long rows = options.getLong("rows", 5_000_000);
+        long ips = options.getLong("ips", 2_000_000);
+        long uris = options.getLong("uris", 200);
+        int runs = options.getInt("runs", 3);
+        System.out.println("ip-storage " + options);
+        try (Connection connection = DriverManager.getConnection(url, user, password);
+             Statement statement = connection.createStatement()) {
+            drop(statement);
+            try {
+                String source = "SELECT g AS id, '/events/' || (g % " + uris + ") AS uri, "
+                        + "TIMESTAMP '2024-01-01 00:00:00' + (g % 2592000) * INTERVAL '1 second' AS timestamp, "
+                        + "abs(hashint8(g)) % " + ips + " AS n FROM generate_series(1, " + rows + ") AS g";
+                long startedAt = System.nanoTime();
+                statement.execute("CREATE UNLOGGED TABLE bench_hits_text AS SELECT id, uri, timestamp, "
+                        + "CAST('10.' || (n >> 16 & 255) || '.' || (n >> 8 & 255) || '.' || (n & 255) AS VARCHAR(45))"
+                        + " AS ip FROM (" + source + ") AS s");
+                statement.execute("CREATE UNLOGGED TABLE bench_hits_binary AS SELECT id, uri, timestamp, "
+                        + "int4send(CAST(167772160 + n AS INTEGER)) AS ip FROM (" + source + ") AS s");
+                for (String table : TABLES) {
+                    statement.execute("CREATE INDEX " + table + "_uri_ts_ip ON " + table + " (uri, timestamp, ip)");
+                    statement.execute("VACUUM ANALYZE " + table);
+                }
+                System.out.printf("generated %d rows in each table in %d ms%n", rows,
+                        (System.nanoTime() - startedAt) / 1_000_000);
+                for (String table : TABLES) {
+                    report(statement, table, runs);
+                }
+            } finally {
+                drop(statement);
+            }
+        }
+    }
+
+    private static void report(Statement statement, String table, int runs) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery("SELECT avg(pg_column_size(ip)), "
+                + "pg_relation_size('" + table + "'), pg_relation_size('" + table + "_uri_ts_ip') FROM " + table)) {
+            resultSet.next();
+            System.out.printf("%-17s ip column %.1f B, heap %d MB, (uri, timestamp, ip) index %d MB%n", table,
+                    resultSet.getDouble(1), resultSet.getLong(2) >> 20, resultSet.getLong(3) >> 20);
+        }
+        System.out.printf("%-17s COUNT(DISTINCT ip): %s%n", table,
+                time(statement, "SELECT COUNT(DISTINCT ip) FROM " + table, runs));
+        System.out.printf("%-17s COUNT(DISTINCT ip) GROUP BY uri: %s%n", table,
+                time(statement, "SELECT uri, COUNT(DISTINCT ip) FROM " + table + " GROUP BY uri", runs));
+    }
+
+    private static String time(Statement statement, String sql, int runs) throws SQLException {
+        Latencies latencies = new Latencies(runs);
+        for (int i = 0; i < runs; i++) {
+            long startedAt = System.nanoTime();
+            try (ResultSet resultSet = statement.executeQuery(sql)) {
+                while (resultSet.next()) {
+                    resultSet.getLong(resultSet.getMetaData().getColumnCount());
+                }
+            }
+            latencies.add(System.nanoTime() - startedAt);
+        }
+        return latencies.summary();
+    }
+
+    private static void drop(Statement statement) throws SQLException {
+        for (String table : TABLES) {
+            statement.execute("DROP TABLE IF EXISTS " + table);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ru.practicum.stats.bench;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencies of the operations of a run, recorded from several threads into one array.
+ */
+final class Latencies {
+    private final long[] nanos;
+    private int count;
+
+    Latencies(int capacity) {
+        this.nanos = new long[capacity];
+    }
+
+    synchronized void add(long elapsedNanos) {
+        nanos[count++] = elapsedNanos;
+    }
+
+    synchronized String summary() {
+        if (count == 0) {
+            return "no operations";
+        }
+        long[] sorted = Arrays.copyOf(nanos, count);
+        Arrays.sort(sorted);
+        return String.format("p50 %s, p99 %s, max %s", format(sorted[count / 2]),
+                format(sorted[Math.min(count - 1, count * 99 / 100)]), format(sorted[count - 1]));
+    }
+
+    /**
+     * Milliseconds, or microseconds below a tenth of a millisecond, as calls that only queue work take.
+     */
+    private static String format(long nanos) {
+        if (nanos < TimeUnit.MICROSECONDS.toNanos(100)) {
+            return String.format("%.1f us", nanos / (double) TimeUnit.MICROSECONDS.toNanos(1));
+        }
+        return String.format("%.2f ms", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
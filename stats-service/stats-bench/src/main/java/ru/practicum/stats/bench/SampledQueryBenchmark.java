@@ -0,0 +1,110 @@
+package ru.practicum.stats.bench;
+
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+
+/**
+ * Exact against sampled counts of {@code GET /stats}: {@code --load} synthetic hits are posted to {@code /hit/batch}
+ * first, then for each rate of {@code --rates} {@code --queries} queries over {@code --uris-per-query} random uris, or
+ * over all uris when it is 0, are sent exactly and with {@code sample} set to the rate. Query latencies, the median
+ * relative error of the estimates and the share of exact counts inside the returned 95% bounds are printed per rate.
+ * Each query ends one second earlier than the previous one, so no answer comes from the result cache. Options:
+ * {@code --url --load --batch-size --rates --queries --uris-per-query --unique} and those of {@link HitGenerator},
+ * which must match the ones the data was loaded with when {@code --load=0}.
+ */
+final class SampledQueryBenchmark {
+    private final BenchOptions options;
+
+    SampledQueryBenchmark(BenchOptions options) {
+        this.options = options;
+    }
+
+    void run() throws Exception {
+        HttpBench http = new HttpBench(options.get("url", "http://localhost:9090"));
+        int load = options.getInt("load", 1_000_000);
+        int batchSize = options.getInt("batch-size", 1000);
+        String rates = options.get("rates", "0.01,0.05,0.1,0.25");
+        int queries = options.getInt("queries", 20);
+        int urisPerQuery = options.getInt("uris-per-query", 10);
+        boolean unique = Boolean.parseBoolean(options.get("unique", "true"));
+        HitGenerator generator = HitGenerator.fromOptions(options);
+        System.out.println("sampled " + options);
+
+        long loadStartedAt = System.nanoTime();
+        for (int loaded = 0; loaded < load; loaded += batchSize) {
+            List<EndpointHitDto> batch = generator.next(Math.min(batchSize, load - loaded));
+            HttpResponse<String> response = http.post("/hit/batch", batch);
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("Failed to load hits: " + response.statusCode() + " "
+                        + response.body());
+            }
+        }
+        if (load > 0) {
+            System.out.printf("loaded %d hits in %d ms%n", load, (System.nanoTime() - loadStartedAt) / 1_000_000);
+        }
+
+        SplittableRandom random = new SplittableRandom(options.getLong("seed", 42));
+        long shift = 0;
+        for (String rate : rates.split(",")) {
+            Latencies exactLatencies = new Latencies(queries);
+            Latencies sampledLatencies = new Latencies(queries);
+            List<Double> errors = new ArrayList<>();
+            int covered = 0;
+            for (int q = 0; q < queries; q++, shift++) {
+                StringJoiner query = new StringJoiner("&", "/stats?", "&unique=" + unique + "&approx=false")
+                        .add("start=" + encode(HitGenerator.format(generator.getStart())))
+                        .add("end=" + encode(HitGenerator.format(generator.getEnd().minusSeconds(shift))));
+                for (int i = 0; i < urisPerQuery; i++) {
+                    query.add("uris=" + encode("/events/" + random.nextInt(generator.getUris())));
+                }
+                Map<String, ViewStatsDto> exact = stats(http, query.toString(), exactLatencies);
+                Map<String, ViewStatsDto> sampled = stats(http, query + "&sample=" + rate, sampledLatencies);
+                for (Map.Entry<String, ViewStatsDto> count : exact.entrySet()) {
+                    long actual = count.getValue().getHits();
+                    ViewStatsDto estimate = sampled.get(count.getKey());
+                    long hits = estimate == null ? 0 : estimate.getHits();
+                    errors.add(Math.abs(hits - actual) / (double) actual);
+                    if (estimate != null && estimate.getHitsLower() != null && estimate.getHitsLower() <= actual
+                            && actual <= estimate.getHitsUpper()) {
+                        covered++;
+                    }
+                }
+            }
+            Collections.sort(errors);
+            System.out.printf("sample %s: exact %s; sampled %s; median relative error %.3f, coverage %.1f%% of %d%n",
+                    rate, exactLatencies.summary(), sampledLatencies.summary(),
+                    errors.isEmpty() ? 0 : errors.get(errors.size() / 2),
+                    errors.isEmpty() ? 0 : covered * 100.0 / errors.size(), errors.size());
+        }
+    }
+
+    private static Map<String, ViewStatsDto> stats(HttpBench http, String query, Latencies latencies)
+            throws Exception {
+        long sentAt = System.nanoTime();
+        HttpResponse<String> response = http.get(query);
+        latencies.add(System.nanoTime() - sentAt);
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Stats query failed: " + response.statusCode() + " " + response.body());
+        }
+        Map<String, ViewStatsDto> stats = new HashMap<>();
+        for (ViewStatsDto viewStats : http.read(response.body(), ViewStatsDto[].class)) {
+            stats.put(viewStats.getApp() + viewStats.getUri(), viewStats);
+        }
+        return stats;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,41 @@
+package ru.practicum.stats.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * CPU time used by the stats-server process, read from {@code /proc/<pid>/stat} when the server runs on the same
+ * Linux host; without a pid every reading is zero.
+ */
+final class ServerCpu {
+    private static final long NANOS_PER_TICK = 10_000_000;
+    private static final int UTIME_AFTER_NAME = 11;
+
+    private final long pid;
+
+    ServerCpu(long pid) {
+        this.pid = pid;
+    }
+
+    static ServerCpu fromOptions(BenchOptions options) {
+        return new ServerCpu(options.getLong("server-pid", 0));
+    }
+
+    boolean isKnown() {
+        return pid > 0;
+    }
+
+    /**
+     * User and system CPU time of the process so far, in nanoseconds, at the usual 100 ticks per second.
+     */
+    long nanos() throws IOException {
+        if (!isKnown()) {
+            return 0;
+        }
+        String stat = Files.readString(Path.of("/proc", String.valueOf(pid), "stat"));
+        String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+        return (Long.parseLong(fields[UTIME_AFTER_NAME]) + Long.parseLong(fields[UTIME_AFTER_NAME + 1]))
+                * NANOS_PER_TICK;
+    }
+}
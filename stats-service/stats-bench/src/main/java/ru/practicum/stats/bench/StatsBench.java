@@ -0,0 +1,40 @@
+package ru.practicum.stats.bench;
+
+import java.util.Arrays;
+
+/**
+ * Entry point of the stats-server benchmarks, run against a started server or database:
+ * <pre>
+ * java -jar stats-service/stats-bench/target/stats-bench-0.0.1-SNAPSHOT.jar &lt;benchmark&gt; [--option=value ...]
+ * </pre>
+ * Each benchmark prints its options and results; see its class for the options it takes.
+ */
+public final class StatsBench {
+
+    private StatsBench() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            usage();
+            return;
+        }
+        BenchOptions options = BenchOptions.parse(Arrays.copyOfRange(args, 1, args.length));
+        switch (args[0]) {
+            case "ingest" -> new IngestionBenchmark(options).run();
+            case "unique" -> new UniqueCountBenchmark(options).run();
+            case "ip-storage" -> new IpStorageBenchmark(options).run();
+            case "storm" -> new StormBenchmark(options).run();
+            case "batcher" -> new BatcherBenchmark(options).run();
+            case "transport" -> new ClientTransportBenchmark(options).run();
+            case "async" -> new AsyncSenderBenchmark(options).run();
+            case "sampled" -> new SampledQueryBenchmark(options).run();
+            case "write-behind" -> new WriteBehindBenchmark(options).run();
+            default -> usage();
+        }
+    }
+
+    private static void usage() {
+        System.out.println("Usage: stats-bench ingest|unique|ip-storage|storm|sampled|async|transport|batcher|write-behind [--option=value ...]");
+    }
+}
@@ -0,0 +1,110 @@
+package ru.practicum.stats.bench;
+
+import ru.practicum.stats.dto.EndpointHitDto;
+
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Query latency under a write storm: {@code --writers} threads post {@code --batch-size} hit batches to
+ * {@code /hit/batch} without pause for {@code --seconds}, while one thread sends exact unique {@code GET /stats}
+ * queries over {@code --uris-per-query} random uris. Query latencies and the outcome of the writes are printed;
+ * writes answered with 429 are counted and not repeated. Each query ends one second earlier than the previous one, so
+ * no answer comes from the result cache. Options: {@code --url --writers --batch-size --batches --seconds
+ * --uris-per-query} and those of {@link HitGenerator}; the writers cycle through {@code --batches} batches generated
+ * up front.
+ */
+final class StormBenchmark {
+    private final BenchOptions options;
+
+    StormBenchmark(BenchOptions options) {
+        this.options = options;
+    }
+
+    void run() throws Exception {
+        HttpBench http = new HttpBench(options.get("url", "http://localhost:9090"));
+        int writers = options.getInt("writers", 32);
+        int batchSize = options.getInt("batch-size", 500);
+        int batches = options.getInt("batches", 200);
+        long seconds = options.getLong("seconds", 30);
+        int urisPerQuery = options.getInt("uris-per-query", 10);
+        HitGenerator generator = HitGenerator.fromOptions(options);
+        System.out.println("storm " + options);
+
+        List<List<EndpointHitDto>> load = new ArrayList<>(batches);
+        for (int i = 0; i < batches; i++) {
+            load.add(generator.next(batchSize));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicLong written = new AtomicLong();
+        AtomicLong throttled = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        Latencies queryLatencies = new Latencies(1_000_000);
+        long queries;
+        try (ExecutorService executor = Executors.newFixedThreadPool(writers)) {
+            List<Future<?>> tasks = new ArrayList<>(writers);
+            for (int w = 0; w < writers; w++) {
+                int first = w;
+                tasks.add(executor.submit(() -> {
+                    for (int i = first; System.nanoTime() < deadline; i += writers) {
+                        int status = http.post("/hit/batch", load.get(i % batches)).statusCode();
+                        if (status == 201) {
+                            written.incrementAndGet();
+                        } else if (status == 429) {
+                            throttled.incrementAndGet();
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            queries = query(http, generator, urisPerQuery, deadline, queryLatencies);
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        }
+        System.out.printf("queries %d: %s%n", queries, queryLatencies.summary());
+        System.out.printf("writes of %d hits: %d written, %d throttled, %d failed%n", batchSize, written.get(),
+                throttled.get(), failed.get());
+    }
+
+    private long query(HttpBench http, HitGenerator generator, int urisPerQuery, long deadline, Latencies latencies)
+            throws Exception {
+        SplittableRandom random = new SplittableRandom(options.getLong("seed", 42));
+        LocalDateTime start = generator.getStart();
+        LocalDateTime end = generator.getEnd();
+        long q = 0;
+        for (; System.nanoTime() < deadline; q++) {
+            StringJoiner query = new StringJoiner("&", "/stats?", "&unique=true&approx=false")
+                    .add("start=" + encode(HitGenerator.format(start)))
+                    .add("end=" + encode(HitGenerator.format(end.minusSeconds(q))));
+            for (int i = 0; i < urisPerQuery; i++) {
+                query.add("uris=" + encode("/events/" + random.nextInt(generator.getUris())));
+            }
+            long sentAt = System.nanoTime();
+            HttpResponse<String> response = http.get(query.toString());
+            latencies.add(System.nanoTime() - sentAt);
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Stats query failed: " + response.statusCode() + " "
+                        + response.body());
+            }
+        }
+        return q;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,101 @@
+package ru.practicum.stats.bench;
+
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+
+/**
+ * Exact against approximate unique counts of {@code GET /stats}: {@code --load} synthetic hits are posted to
+ * {@code /hit/batch} first, then {@code --queries} unique queries over {@code --uris-per-query} random uris are sent
+ * with {@code approx=false} and {@code approx=true}. Query latencies of both modes and the relative error of the
+ * approximate counts are printed. Each query ends one second earlier than the previous one, so no answer comes from
+ * the result cache. Options: {@code --url --load --batch-size --queries --uris-per-query} and those of
+ * {@link HitGenerator}, which must match the ones the data was loaded with when {@code --load=0}.
+ */
+final class UniqueCountBenchmark {
+    private final BenchOptions options;
+
+    UniqueCountBenchmark(BenchOptions options) {
+        this.options = options;
+    }
+
+    void run() throws Exception {
+        HttpBench http = new HttpBench(options.get("url", "http://localhost:9090"));
+        int load = options.getInt("load", 200_000);
+        int batchSize = options.getInt("batch-size", 1000);
+        int queries = options.getInt("queries", 20);
+        int urisPerQuery = options.getInt("uris-per-query", 10);
+        HitGenerator generator = HitGenerator.fromOptions(options);
+        LocalDateTime start = generator.getStart();
+        LocalDateTime end = generator.getEnd();
+        System.out.println("unique " + options);
+
+        long loadStartedAt = System.nanoTime();
+        for (int loaded = 0; loaded < load; loaded += batchSize) {
+            List<EndpointHitDto> batch = generator.next(Math.min(batchSize, load - loaded));
+            HttpResponse<String> response = http.post("/hit/batch", batch);
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("Failed to load hits: " + response.statusCode() + " "
+                        + response.body());
+            }
+        }
+        if (load > 0) {
+            System.out.printf("loaded %d hits in %d ms%n", load, (System.nanoTime() - loadStartedAt) / 1_000_000);
+        }
+
+        SplittableRandom random = new SplittableRandom(options.getLong("seed", 42));
+        Latencies exactLatencies = new Latencies(queries);
+        Latencies approxLatencies = new Latencies(queries);
+        double errorSum = 0;
+        double maxError = 0;
+        int compared = 0;
+        for (int q = 0; q < queries; q++) {
+            StringJoiner query = new StringJoiner("&", "/stats?", "&unique=true")
+                    .add("start=" + encode(HitGenerator.format(start)))
+                    .add("end=" + encode(HitGenerator.format(end.minusSeconds(q))));
+            for (int i = 0; i < urisPerQuery; i++) {
+                query.add("uris=" + encode("/events/" + random.nextInt(generator.getUris())));
+            }
+            Map<String, Long> exact = counts(http, query + "&approx=false", exactLatencies);
+            Map<String, Long> approx = counts(http, query + "&approx=true", approxLatencies);
+            for (Map.Entry<String, Long> count : exact.entrySet()) {
+                double error = Math.abs(approx.getOrDefault(count.getKey(), 0L) - count.getValue())
+                        / (double) count.getValue();
+                errorSum += error;
+                maxError = Math.max(maxError, error);
+                compared++;
+            }
+        }
+        System.out.printf("exact  %s%n", exactLatencies.summary());
+        System.out.printf("approx %s%n", approxLatencies.summary());
+        System.out.printf("relative error over %d counts: mean %.2f%%, max %.2f%%%n", compared,
+                compared == 0 ? 0 : errorSum / compared * 100, maxError * 100);
+    }
+
+    private static Map<String, Long> counts(HttpBench http, String query, Latencies latencies) throws Exception {
+        long sentAt = System.nanoTime();
+        HttpResponse<String> response = http.get(query);
+        latencies.add(System.nanoTime() - sentAt);
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Stats query failed: " + response.statusCode() + " " + response.body());
+        }
+        Map<String, Long> counts = new HashMap<>();
+        for (ViewStatsDto viewStats : http.read(response.body(), ViewStatsDto[].class)) {
+            counts.merge(viewStats.getApp() + viewStats.getUri(), viewStats.getHits(), Long::sum);
+        }
+        return counts;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,123 @@
+package ru.practicum.stats.bench;
+
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Acknowledgement latency and commit lag of ingestion, meant to compare {@code stats.ingestion.mode=sync} with
+ * {@code write-behind}: {@code --threads} threads post {@code --hits} hits of an app unique to the run, to
+ * {@code /hit} or, with {@code --batch-size} above one, to {@code /hit/batch}. Request latencies are printed, then
+ * {@code /stats} is polled every {@code --poll-ms} until it counts every acknowledged hit or {@code --wait-seconds}
+ * pass, and the time until then and the hits still missing are printed. Stopping the database during the run shows
+ * whether hits acknowledged while it is down are committed once it is back. Requests answered with 429 are repeated.
+ * Options: {@code --url --hits --threads --batch-size --poll-ms --wait-seconds} and those of {@link HitGenerator}.
+ */
+final class WriteBehindBenchmark {
+    private static final long RETRY_DELAY_MS = 10;
+
+    private final BenchOptions options;
+
+    WriteBehindBenchmark(BenchOptions options) {
+        this.options = options;
+    }
+
+    void run() throws Exception {
+        HttpBench http = new HttpBench(options.get("url", "http://localhost:9090"));
+        int hits = options.getInt("hits", 20_000);
+        int threads = options.getInt("threads", 4);
+        int batchSize = options.getInt("batch-size", 1);
+        long pollMs = options.getLong("poll-ms", 50);
+        long waitSeconds = options.getLong("wait-seconds", 120);
+        HitGenerator generator = HitGenerator.fromOptions(options);
+        System.out.println("write-behind " + options);
+
+        String app = "bench-" + System.currentTimeMillis();
+        List<EndpointHitDto> load = generator.next(hits);
+        load.forEach(hit -> hit.setApp(app));
+        Latencies latencies = new Latencies(hits + threads);
+        AtomicLong acknowledged = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        int perThread = (hits + threads - 1) / threads;
+        long startedAt = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<?>> tasks = new ArrayList<>(threads);
+            for (int from = 0; from < hits; from += perThread) {
+                List<EndpointHitDto> part = load.subList(from, Math.min(hits, from + perThread));
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < part.size(); i += batchSize) {
+                        List<EndpointHitDto> batch = part.subList(i, Math.min(part.size(), i + batchSize));
+                        long sentAt = System.nanoTime();
+                        int status = post(http, batch);
+                        latencies.add(System.nanoTime() - sentAt);
+                        if (status == 201) {
+                            acknowledged.addAndGet(batch.size());
+                        } else {
+                            failed.addAndGet(batch.size());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        }
+        long sentAt = System.nanoTime();
+        System.out.printf("sent %d hits in %d ms, acknowledged %d, failed %d; per request %s%n", hits,
+                TimeUnit.NANOSECONDS.toMillis(sentAt - startedAt), acknowledged.get(), failed.get(),
+                latencies.summary());
+
+        long deadline = sentAt + TimeUnit.SECONDS.toNanos(waitSeconds);
+        long counted = count(http, app, generator.getStart(), generator.getEnd());
+        while (counted < acknowledged.get() && System.nanoTime() < deadline) {
+            Thread.sleep(pollMs);
+            counted = count(http, app, generator.getStart(), generator.getEnd());
+        }
+        System.out.printf("counted %d of %d acknowledged hits %d ms after the last acknowledgement, missing %d%n",
+                counted, acknowledged.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sentAt),
+                acknowledged.get() - counted);
+    }
+
+    private static int post(HttpBench http, List<EndpointHitDto> batch) throws Exception {
+        while (true) {
+            HttpResponse<String> response = batch.size() == 1
+                    ? http.post("/hit", batch.getFirst())
+                    : http.post("/hit/batch", batch);
+            if (response.statusCode() != 429) {
+                return response.statusCode();
+            }
+            Thread.sleep(RETRY_DELAY_MS);
+        }
+    }
+
+    private static long count(HttpBench http, String app, LocalDateTime start, LocalDateTime end) throws Exception {
+        HttpResponse<String> response = http.get("/stats?start=" + encode(HitGenerator.format(start)) + "&end="
+                + encode(HitGenerator.format(end)) + "&unique=false");
+        if (response.statusCode() != 200) {
+            return 0;
+        }
+        long count = 0;
+        for (ViewStatsDto viewStats : http.read(response.body(), ViewStatsDto[].class)) {
+            if (app.equals(viewStats.getApp())) {
+                count += viewStats.getHits();
+            }
+        }
+        return count;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,279 @@
+package ru.practicum.stats.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.HitBatchResultDto;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking mode of {@link StatsClient#addStats}: hits are put into a bounded queue and a background flusher sends
+ * them to their shards in batches, over {@link BinaryStatsSender} when it is enabled and to {@code /hit/batch}
+ * otherwise. When the queue is full a hit is dropped, or with the {@code block} overflow policy the caller waits up to
+ * {@code stats-server.async.offer-timeout-ms} for space first. Failed sends are retried with exponential backoff,
+ * honouring {@code Retry-After}, and only the hits a binary send did not get acknowledged are sent again; rejected
+ * batches are dropped. On shutdown the queue is drained for up to {@code stats-server.async.drain-timeout-ms}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats-server.async.enabled", havingValue = "true")
+public class AsyncStatsSender implements SmartLifecycle {
+    private final ShardRouter shardRouter;
+    private final RestTemplate restTemplate;
+    private final Optional<BinaryStatsSender> binaryStatsSender;
+    private final BlockingQueue<EndpointHitDto> queue;
+    private final int flushSize;
+    private final long flushIntervalMs;
+    private final OverflowPolicy overflowPolicy;
+    private final long offerTimeoutMs;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+    private final long maxRetryBackoffMs;
+    private final long drainTimeoutMs;
+    private final Timer flushTimer;
+    private final Counter sentCounter;
+    private final Counter overflowCounter;
+    private final Counter failedCounter;
+    private final Counter retryCounter;
+    private volatile boolean running;
+    private Thread flusher;
+
+    public AsyncStatsSender(ShardRouter shardRouter, RestTemplate restTemplate,
+                            Optional<BinaryStatsSender> binaryStatsSender, MeterRegistry meterRegistry,
+                            @Value("${stats-server.async.capacity:10000}") int capacity,
+                            @Value("${stats-server.async.flush-size:500}") int flushSize,
+                            @Value("${stats-server.async.flush-interval-ms:200}") long flushIntervalMs,
+                            @Value("${stats-server.async.overflow:drop}") OverflowPolicy overflowPolicy,
+                            @Value("${stats-server.async.offer-timeout-ms:50}") long offerTimeoutMs,
+                            @Value("${stats-server.async.max-retries:5}") int maxRetries,
+                            @Value("${stats-server.async.retry-backoff-ms:100}") long retryBackoffMs,
+                            @Value("${stats-server.async.max-retry-backoff-ms:5000}") long maxRetryBackoffMs,
+                            @Value("${stats-server.async.drain-timeout-ms:10000}") long drainTimeoutMs) {
+        this.shardRouter = shardRouter;
+        this.restTemplate = restTemplate;
+        this.binaryStatsSender = binaryStatsSender;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.flushSize = flushSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.overflowPolicy = overflowPolicy;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMs = retryBackoffMs;
+        this.maxRetryBackoffMs = maxRetryBackoffMs;
+        this.drainTimeoutMs = drainTimeoutMs;
+        meterRegistry.gauge("stats.client.queue.depth", queue, BlockingQueue::size);
+        this.flushTimer = meterRegistry.timer("stats.client.flush.latency");
+        this.sentCounter = meterRegistry.counter("stats.client.sent");
+        this.overflowCounter = meterRegistry.counter("stats.client.dropped", "reason", "overflow");
+        this.failedCounter = meterRegistry.counter("stats.client.dropped", "reason", "failed");
+        this.retryCounter = meterRegistry.counter("stats.client.retries");
+    }
+
+    /**
+     * Queues the hit and returns without waiting for the stats-server; returns {@code false} if the hit was dropped.
+     */
+    public boolean enqueue(EndpointHitDto hit) {
+        boolean queued;
+        try {
+            queued = running && (overflowPolicy == OverflowPolicy.BLOCK
+                    ? queue.offer(hit, offerTimeoutMs, TimeUnit.MILLISECONDS)
+                    : queue.offer(hit));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            overflowCounter.increment();
+            log.debug("Stats queue is full, drop hit of {}", hit.getUri());
+        }
+        return queued;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        flusher = new Thread(this::drain, "stats-client-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            flusher.join(drainTimeoutMs);
+            if (flusher.isAlive()) {
+                flusher.interrupt();
+                flusher.join(drainTimeoutMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.warn("Stats client stopped with {} unsent hits", queue.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 4096;
+    }
+
+    private void drain() {
+        List<EndpointHitDto> group = new ArrayList<>(flushSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                collect(group);
+                flush(group);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failedCounter.increment(group.size() + queue.size());
+            log.warn("Stats client flusher was interrupted, drop {} hits", group.size() + queue.size());
+            queue.clear();
+        }
+    }
+
+    private void collect(List<EndpointHitDto> group) throws InterruptedException {
+        EndpointHitDto first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        group.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (group.size() < flushSize) {
+            queue.drainTo(group, flushSize - group.size());
+            long remaining = deadline - System.nanoTime();
+            if (group.size() >= flushSize || remaining <= 0 || !running) {
+                return;
+            }
+            EndpointHitDto next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            group.add(next);
+        }
+    }
+
+    private void flush(List<EndpointHitDto> group) throws InterruptedException {
+        if (group.isEmpty()) {
+            return;
+        }
+        Map<String, List<EndpointHitDto>> shards = new LinkedHashMap<>();
+        for (EndpointHitDto hit : group) {
+            shards.computeIfAbsent(shardRouter.route(hit.getUri()), shard -> new ArrayList<>()).add(hit);
+        }
+        long startedAt = System.nanoTime();
+        for (Map.Entry<String, List<EndpointHitDto>> shard : shards.entrySet()) {
+            sendWithRetries(shard.getKey(), shard.getValue());
+        }
+        flushTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        group.clear();
+    }
+
+    private void sendWithRetries(String shard, List<EndpointHitDto> group) throws InterruptedException {
+        List<EndpointHitDto> hits = group;
+        long backoffMs = retryBackoffMs;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                HitBatchResultDto result = send(shard, hits);
+                sentCounter.increment(result.getAccepted());
+                if (result.getRejected() > 0) {
+                    log.debug("Stats server {} rejected {} hits", shard, result.getRejected());
+                }
+                return;
+            } catch (BinarySendException e) {
+                sentCounter.increment(e.getResult().getAccepted());
+                hits = e.getUnsent();
+                if (retry(shard, hits, attempt, backoffMs, e)) {
+                    return;
+                }
+            } catch (HttpClientErrorException.TooManyRequests e) {
+                backoffMs = Math.max(backoffMs, retryAfterMs(e));
+                if (retry(shard, hits, attempt, backoffMs, e)) {
+                    return;
+                }
+            } catch (ResourceAccessException | HttpServerErrorException | UncheckedIOException e) {
+                if (retry(shard, hits, attempt, backoffMs, e)) {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                failedCounter.increment(hits.size());
+                log.error("Failed to send {} hits to {}: {}", hits.size(), shard, e.getMessage());
+                return;
+            }
+            backoffMs = Math.min(backoffMs * 2, maxRetryBackoffMs);
+        }
+    }
+
+    /**
+     * Waits before the next attempt; returns {@code true} if the hits are dropped instead.
+     */
+    private boolean retry(String shard, List<EndpointHitDto> hits, int attempt, long backoffMs, RuntimeException e)
+            throws InterruptedException {
+        if (attempt >= maxRetries) {
+            failedCounter.increment(hits.size());
+            log.error("Failed to send {} hits to {} after {} attempts: {}", hits.size(), shard, attempt + 1,
+                    e.getMessage());
+            return true;
+        }
+        retryCounter.increment();
+        log.debug("Retry sending {} hits to {} in {} ms: {}", hits.size(), shard, backoffMs, e.getMessage());
+        Thread.sleep(backoffMs);
+        return false;
+    }
+
+    private HitBatchResultDto send(String shard, List<EndpointHitDto> hits) {
+        if (binaryStatsSender.isPresent()) {
+            return binaryStatsSender.get().send(hits);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HitBatchResultDto result = restTemplate.exchange(shard + "/hit/batch", HttpMethod.POST,
+                new HttpEntity<>(hits, headers), HitBatchResultDto.class).getBody();
+        return result != null ? result : new HitBatchResultDto(hits.size(), 0);
+    }
+
+    private long retryAfterMs(HttpClientErrorException e) {
+        String retryAfter = e.getResponseHeaders() == null ? null
+                : e.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        try {
+            return retryAfter == null ? 0 : TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.strip()));
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    public enum OverflowPolicy {
+        DROP,
+        BLOCK
+    }
+}
@@ -0,0 +1,26 @@
+package ru.practicum.stats.client;
+
+import lombok.Getter;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.HitBatchResultDto;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Thrown by {@link BinaryStatsSender#send} when some shards could not be sent to: {@code result} counts the hits that
+ * were acknowledged or rejected before the failure, and {@code unsent} holds the ones to send again.
+ */
+@Getter
+public class BinarySendException extends UncheckedIOException {
+    private final transient HitBatchResultDto result;
+    private final transient List<EndpointHitDto> unsent;
+
+    public BinarySendException(String message, IOException cause, HitBatchResultDto result,
+                               List<EndpointHitDto> unsent) {
+        super(message, cause);
+        this.result = result;
+        this.unsent = unsent;
+    }
+}
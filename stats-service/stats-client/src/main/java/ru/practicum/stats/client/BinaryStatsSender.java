@@ -0,0 +1,284 @@
+package ru.practicum.stats.client;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.HitBatchResultDto;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static ru.practicum.stats.dto.BinaryHitProtocol.ACK;
+import static ru.practicum.stats.dto.BinaryHitProtocol.DEFINE;
+import static ru.practicum.stats.dto.BinaryHitProtocol.HEADER_BYTES;
+import static ru.practicum.stats.dto.BinaryHitProtocol.HITS;
+import static ru.practicum.stats.dto.BinaryHitProtocol.HIT_FIXED_BYTES;
+import static ru.practicum.stats.dto.BinaryHitProtocol.KIND_APP;
+import static ru.practicum.stats.dto.BinaryHitProtocol.KIND_URI;
+
+/**
+ * Sender for {@link ru.practicum.stats.dto.BinaryHitProtocol}. Keeps one connection and its dictionary per shard, on
+ * the shard host and {@code stats-server.binary.port}; hits that cannot be encoded are counted as rejected without
+ * being sent. Each connection is used by one sender at a time, and sends to different shards do not wait for each
+ * other. Connecting and waiting for an acknowledgement are bounded by {@code stats-server.binary.connect-timeout-ms}
+ * and {@code stats-server.binary.read-timeout-ms}. A failed send drops the connection, and the next call reconnects
+ * with an empty dictionary. Hits are acknowledged frame by frame, so when a shard fails the send still goes on to the
+ * other shards and then throws a {@link BinarySendException} with only the hits that were not acknowledged; those of
+ * a frame whose acknowledgement was lost on the way may have been saved and are counted twice if sent again.
+ */
+@Component
+@ConditionalOnProperty(name = "stats-server.binary.enabled", havingValue = "true")
+public class BinaryStatsSender implements DisposableBean {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int DEFINE_FIXED_BYTES = HEADER_BYTES + 1 + Integer.BYTES + Short.BYTES;
+    private static final int MAX_IP_BYTES = 255;
+
+    private final ShardRouter shardRouter;
+    private final int port;
+    private final int maxFrameBytes;
+    private final int maxDictionarySize;
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+
+    public BinaryStatsSender(ShardRouter shardRouter,
+                             @Value("${stats-server.binary.port:9091}") int port,
+                             @Value("${stats-server.binary.max-frame-bytes:1048576}") int maxFrameBytes,
+                             @Value("${stats-server.binary.max-dictionary-size:100000}") int maxDictionarySize,
+                             @Value("${stats-server.binary.connect-timeout-ms:1000}") int connectTimeoutMs,
+                             @Value("${stats-server.binary.read-timeout-ms:5000}") int readTimeoutMs) {
+        this.shardRouter = shardRouter;
+        this.port = port;
+        this.maxFrameBytes = maxFrameBytes;
+        this.maxDictionarySize = maxDictionarySize;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    public HitBatchResultDto send(List<EndpointHitDto> hits) {
+        Map<String, List<EndpointHitDto>> shards = new LinkedHashMap<>();
+        for (EndpointHitDto hit : hits) {
+            shards.computeIfAbsent(shardRouter.route(hit.getUri()), shard -> new ArrayList<>()).add(hit);
+        }
+        HitBatchResultDto result = new HitBatchResultDto(0, 0);
+        List<EndpointHitDto> unsent = new ArrayList<>();
+        IOException failure = null;
+        for (Map.Entry<String, List<EndpointHitDto>> shard : shards.entrySet()) {
+            Connection connection = connections.computeIfAbsent(shard.getKey(),
+                    serverUrl -> new Connection(new InetSocketAddress(URI.create(serverUrl).getHost(), port)));
+            synchronized (connection) {
+                try {
+                    connection.send(shard.getValue(), result, unsent);
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+        }
+        if (failure != null) {
+            throw new BinarySendException("Failed to send " + unsent.size() + " of " + hits.size() + " hits",
+                    failure, result, unsent);
+        }
+        return result;
+    }
+
+    @Override
+    public void destroy() {
+        for (Connection connection : connections.values()) {
+            synchronized (connection) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private static boolean fits(String name, int capacity) {
+        return name != null && !name.isBlank()
+                && DEFINE_FIXED_BYTES + name.length() * 3L <= Math.min(capacity, Short.MAX_VALUE);
+    }
+
+    private static LocalDateTime parse(String timestamp) {
+        try {
+            return timestamp == null ? null : LocalDateTime.parse(timestamp, FORMATTER);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A connection to one shard with its dictionary and frame buffers; guarded by its own monitor.
+     */
+    private final class Connection {
+        private final InetSocketAddress address;
+        private final Map<String, Integer> apps = new HashMap<>();
+        private final Map<String, Integer> uris = new HashMap<>();
+        private final ByteBuffer defines = ByteBuffer.allocate(Integer.BYTES + maxFrameBytes);
+        private final ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + maxFrameBytes);
+        private final byte[] ack = new byte[HEADER_BYTES + 2 * Integer.BYTES];
+        private final List<EndpointHitDto> framed = new ArrayList<>();
+        private Socket socket;
+        private InputStream in;
+        private OutputStream out;
+        private HitBatchResultDto result;
+
+        private Connection(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        /**
+         * Adds the acknowledged and rejected hits to {@code result}; on failure adds the rest to {@code unsent}.
+         */
+        private void send(List<EndpointHitDto> hits, HitBatchResultDto result, List<EndpointHitDto> unsent)
+                throws IOException {
+            this.result = result;
+            int next = 0;
+            try {
+                if (socket == null) {
+                    connect();
+                }
+                startFrame();
+                for (; next < hits.size(); next++) {
+                    encode(hits.get(next));
+                }
+                flush();
+            } catch (IOException e) {
+                disconnect();
+                unsent.addAll(framed);
+                unsent.addAll(hits.subList(next, hits.size()));
+                throw new IOException("Failed to send hits to " + address, e);
+            } finally {
+                this.result = null;
+                framed.clear();
+            }
+        }
+
+        private void encode(EndpointHitDto hit) throws IOException {
+            byte[] ip = hit.getIp() == null ? null : hit.getIp().getBytes(StandardCharsets.UTF_8);
+            LocalDateTime timestamp = parse(hit.getTimestamp());
+            if (!fits(hit.getApp(), defines.capacity()) || !fits(hit.getUri(), defines.capacity()) || ip == null
+                    || ip.length == 0 || ip.length > MAX_IP_BYTES || timestamp == null) {
+                result.setRejected(result.getRejected() + 1);
+                return;
+            }
+            if (apps.size() >= maxDictionarySize || uris.size() >= maxDictionarySize) {
+                flush();
+                disconnect();
+                connect();
+            }
+            int appId = define(apps, KIND_APP, hit.getApp());
+            int uriId = define(uris, KIND_URI, hit.getUri());
+            if (frame.remaining() < HIT_FIXED_BYTES + ip.length) {
+                flush();
+            }
+            frame.putInt(appId)
+                    .putInt(uriId)
+                    .putLong(timestamp.toEpochSecond(ZoneOffset.UTC) * 1000)
+                    .put((byte) ip.length)
+                    .put(ip);
+            framed.add(hit);
+        }
+
+        private int define(Map<String, Integer> names, byte kind, String name) throws IOException {
+            Integer id = names.get(name);
+            if (id != null) {
+                return id;
+            }
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            if (defines.remaining() < DEFINE_FIXED_BYTES + bytes.length) {
+                flush();
+            }
+            id = names.size();
+            defines.putInt(1 + 1 + Integer.BYTES + Short.BYTES + bytes.length)
+                    .put(DEFINE)
+                    .put(kind)
+                    .putInt(id)
+                    .putShort((short) bytes.length)
+                    .put(bytes);
+            names.put(name, id);
+            return id;
+        }
+
+        private void startFrame() {
+            frame.clear().position(HEADER_BYTES + Integer.BYTES);
+            framed.clear();
+        }
+
+        private void flush() throws IOException {
+            out.write(defines.array(), 0, defines.position());
+            defines.clear();
+            if (!framed.isEmpty()) {
+                frame.putInt(0, frame.position() - Integer.BYTES)
+                        .put(Integer.BYTES, HITS)
+                        .putInt(HEADER_BYTES, framed.size());
+                out.write(frame.array(), 0, frame.position());
+                out.flush();
+                readAck();
+            }
+            startFrame();
+        }
+
+        private void readAck() throws IOException {
+            if (in.readNBytes(ack, 0, ack.length) < ack.length) {
+                throw new EOFException("Connection closed before acknowledgement");
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(ack);
+            if (buffer.get(Integer.BYTES) != ACK) {
+                throw new IOException("Unexpected frame type " + buffer.get(Integer.BYTES));
+            }
+            result.setAccepted(result.getAccepted() + buffer.getInt(HEADER_BYTES));
+            result.setRejected(result.getRejected() + buffer.getInt(HEADER_BYTES + Integer.BYTES));
+        }
+
+        private void connect() throws IOException {
+            Socket opened = new Socket();
+            try {
+                opened.setTcpNoDelay(true);
+                opened.setSoTimeout(readTimeoutMs);
+                opened.connect(address, connectTimeoutMs);
+                in = opened.getInputStream();
+                out = opened.getOutputStream();
+            } catch (IOException e) {
+                opened.close();
+                throw e;
+            }
+            socket = opened;
+            apps.clear();
+            uris.clear();
+            defines.clear();
+        }
+
+        private void disconnect() {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // the connection is dropped either way
+                }
+                socket = null;
+                in = null;
+                out = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ru.practicum.stats.client;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.dto.HitHash;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring over the stats-server nodes listed in {@code stats-server.url}, separated by commas. Each node
+ * owns the uris that hash between its points on the ring and keeps all hits of those uris, so per-uri stats, unique
+ * ones included, come from a single node. A node is placed on the ring {@code stats-server.shards.virtual-nodes}
+ * times, which keeps the shards even and moves only about 1/N of the uris when a node is added or removed.
+ */
+@Component
+public class ShardRouter {
+    private final List<String> shards = new ArrayList<>();
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    public ShardRouter(@Value("${stats-server.url}") String serverUrls,
+                       @Value("${stats-server.shards.virtual-nodes:160}") int virtualNodes) {
+        for (String serverUrl : serverUrls.split(",")) {
+            String shard = serverUrl.strip();
+            if (shard.isEmpty() || shards.contains(shard)) {
+                continue;
+            }
+            shards.add(shard);
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.putIfAbsent(HitHash.hash(shard + "#" + i), shard);
+            }
+        }
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("stats-server.url must list at least one server");
+        }
+    }
+
+    public List<String> getShards() {
+        return List.copyOf(shards);
+    }
+
+    public boolean isSharded() {
+        return shards.size() > 1;
+    }
+
+    public String route(String uri) {
+        if (!isSharded()) {
+            return shards.getFirst();
+        }
+        Map.Entry<Long, String> owner = ring.ceilingEntry(HitHash.hash(uri));
+        return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * Groups the uris by their owning shards, keeping the order of first appearance.
+     */
+    public Map<String, List<String>> group(List<String> uris) {
+        Map<String, List<String>> groups = new LinkedHashMap<>();
+        for (String uri : uris) {
+            groups.computeIfAbsent(route(uri), shard -> new ArrayList<>()).add(uri);
+        }
+        return groups;
+    }
+}
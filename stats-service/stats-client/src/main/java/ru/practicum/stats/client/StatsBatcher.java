@@ -0,0 +1,122 @@
+package ru.practicum.stats.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Micro-batcher of uri lookups for {@link StatsClient#getStats}. Lookups of the same range and uniqueness that
+ * arrive within {@code stats-server.batch.window-ms} of the first one are combined into one request for all their
+ * uris, sent when the window closes or as soon as the batch reaches {@code stats-server.batch.max-uris}; each caller
+ * gets the stats of its own uris. Identical concurrent lookups fall into the same batch, so they are coalesced too.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats-server.batch.enabled", havingValue = "true")
+public class StatsBatcher {
+    private final Map<BatchKey, Batch> open = new HashMap<>();
+    private final long windowMs;
+    private final int maxUris;
+
+    public StatsBatcher(@Value("${stats-server.batch.window-ms:5}") long windowMs,
+                        @Value("${stats-server.batch.max-uris:100}") int maxUris) {
+        this.windowMs = windowMs;
+        this.maxUris = maxUris;
+    }
+
+    /**
+     * Returns the stats of the uris from the batch they were added to; {@code loader} requests the stats of all
+     * uris of a batch from the stats-servers.
+     */
+    public List<ViewStatsDto> getStats(String start, String end, List<String> uris, boolean unique,
+                                       Function<List<String>, List<ViewStatsDto>> loader) {
+        BatchKey key = new BatchKey(start, end, unique);
+        Batch batch;
+        boolean full;
+        synchronized (this) {
+            batch = open.get(key);
+            if (batch == null) {
+                batch = new Batch(loader);
+                open.put(key, batch);
+                Batch scheduled = batch;
+                Thread.ofVirtual().name("stats-client-batcher").start(() -> flushLater(key, scheduled));
+            }
+            batch.uris.addAll(uris);
+            full = batch.uris.size() >= maxUris;
+            if (full) {
+                open.remove(key);
+            }
+        }
+        if (full) {
+            batch.load();
+        }
+        Set<String> requested = Set.copyOf(uris);
+        return join(batch.result).stream()
+                .filter(viewStats -> requested.contains(viewStats.getUri()))
+                .toList();
+    }
+
+    private void flushLater(BatchKey key, Batch batch) {
+        try {
+            Thread.sleep(windowMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (!open.remove(key, batch)) {
+                return;
+            }
+        }
+        batch.load();
+    }
+
+    private static List<ViewStatsDto> join(CompletableFuture<List<ViewStatsDto>> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for batched stats", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private record BatchKey(String start, String end, boolean unique) {
+    }
+
+    private static final class Batch {
+        private final Set<String> uris = new LinkedHashSet<>();
+        private final CompletableFuture<List<ViewStatsDto>> result = new CompletableFuture<>();
+        private final Function<List<String>, List<ViewStatsDto>> loader;
+
+        private Batch(Function<List<String>, List<ViewStatsDto>> loader) {
+            this.loader = loader;
+        }
+
+        /**
+         * Called once, after the batch is closed, so its uris no longer change.
+         */
+        private void load() {
+            try {
+                result.complete(loader.apply(List.copyOf(uris)));
+            } catch (RuntimeException e) {
+                log.debug("Failed to load batched stats of {} uris: {}", uris.size(), e.getMessage());
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
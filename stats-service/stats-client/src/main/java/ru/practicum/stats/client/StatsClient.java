@@ -1,54 +1,169 @@
 package ru.practicum.stats.client;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import ru.practicum.stats.dto.EndpointHitDto;
 import ru.practicum.stats.dto.ViewStatsDto;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Service
 public class StatsClient {
-    private final String serverUrl;
+    private final ShardRouter shardRouter;
     private final RestTemplate restTemplate;
+    private final Optional<BinaryStatsSender> binaryStatsSender;
+    private final Optional<AsyncStatsSender> asyncStatsSender;
+    private final Optional<ViewStatsCache> viewStatsCache;
+    private final Optional<StatsBatcher> statsBatcher;
+    private final SingleFlight<StatsRequest, List<ViewStatsDto>> singleFlight = new SingleFlight<>();
 
-    public StatsClient(@Value("${stats-server.url}") String serverUrl, RestTemplate restTemplate) {
-        this.serverUrl = serverUrl;
+    public StatsClient(ShardRouter shardRouter, RestTemplate restTemplate,
+                       Optional<BinaryStatsSender> binaryStatsSender, Optional<AsyncStatsSender> asyncStatsSender,
+                       Optional<ViewStatsCache> viewStatsCache, Optional<StatsBatcher> statsBatcher) {
+        this.shardRouter = shardRouter;
         this.restTemplate = restTemplate;
+        this.binaryStatsSender = binaryStatsSender;
+        this.asyncStatsSender = asyncStatsSender;
+        this.viewStatsCache = viewStatsCache;
+        this.statsBatcher = statsBatcher;
     }
 
+    /**
+     * With {@code stats-server.async.enabled} the hit is only queued, see {@link AsyncStatsSender}.
+     */
     public void addStats(EndpointHitDto endpointHitDto) {
+        if (asyncStatsSender.isPresent()) {
+            asyncStatsSender.get().enqueue(endpointHitDto);
+            return;
+        }
+        if (binaryStatsSender.isPresent()) {
+            binaryStatsSender.get().send(List.of(endpointHitDto));
+            return;
+        }
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
 
         HttpEntity<EndpointHitDto> requestEntity = new HttpEntity<>(endpointHitDto, headers);
-        restTemplate.exchange(serverUrl + "/hit", HttpMethod.POST, requestEntity, EndpointHitDto.class);
+        restTemplate.exchange(shardRouter.route(endpointHitDto.getUri()) + "/hit", HttpMethod.POST, requestEntity,
+                EndpointHitDto.class);
     }
 
+    /**
+     * With {@code stats-server.cache.enabled} requests for given uris up to about now are answered from
+     * {@link ViewStatsCache}. The cache, the batcher and coalesced calls share their stats between callers, so each
+     * caller gets its own copies, which it may change.
+     */
     public List<ViewStatsDto> getStats(String start, String end, List<String> uris, Boolean unique) {
+        if (viewStatsCache.isPresent() && uris != null && viewStatsCache.get().accepts(end)) {
+            return copyOf(viewStatsCache.get().getStats(start, uris, Boolean.TRUE.equals(unique),
+                    missing -> fetchStats(start, end, missing, unique)));
+        }
+        return copyOf(fetchStats(start, end, uris, unique));
+    }
+
+    /**
+     * Concurrent identical requests share one call to the stats-servers and its result, which must not be changed.
+     * With {@code stats-server.batch.enabled} requests for given uris are combined by {@link StatsBatcher} instead.
+     */
+    private List<ViewStatsDto> fetchStats(String start, String end, List<String> uris, Boolean unique) {
+        if (statsBatcher.isPresent() && uris != null) {
+            return statsBatcher.get().getStats(start, end, uris, Boolean.TRUE.equals(unique),
+                    batchUris -> List.copyOf(scatterStats(start, end, batchUris, unique)));
+        }
+        StatsRequest request = new StatsRequest(start, end,
+                uris == null ? null : uris.stream().distinct().sorted().toList(), Boolean.TRUE.equals(unique));
+        return singleFlight.execute(request,
+                () -> List.copyOf(scatterStats(request.start(), request.end(), request.uris(), request.unique())));
+    }
 
+    /**
+     * With several shards the request goes to every shard owning one of the uris, or to all of them without uris,
+     * in parallel. A uri is owned by one shard, so merging only sums the hits of an app and uri that a resharding
+     * left on two shards.
+     */
+    private List<ViewStatsDto> scatterStats(String start, String end, List<String> uris, Boolean unique) {
+        if (!shardRouter.isSharded()) {
+            return getStats(shardRouter.getShards().getFirst(), start, end, uris, unique);
+        }
+        Map<String, List<String>> requests = new LinkedHashMap<>();
+        if (uris == null) {
+            shardRouter.getShards().forEach(shard -> requests.put(shard, uris));
+        } else {
+            requests.putAll(shardRouter.group(uris));
+        }
+        List<Future<List<ViewStatsDto>>> responses = new ArrayList<>(requests.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            requests.forEach((shard, shardUris) ->
+                    responses.add(executor.submit(() -> getStats(shard, start, end, shardUris, unique))));
+        }
+        Map<List<String>, ViewStatsDto> merged = new LinkedHashMap<>();
+        for (Future<List<ViewStatsDto>> response : responses) {
+            for (ViewStatsDto viewStats : join(response)) {
+                merged.merge(List.of(viewStats.getApp(), viewStats.getUri()), viewStats, (left, right) -> {
+                    left.setHits(left.getHits() + right.getHits());
+                    return left;
+                });
+            }
+        }
+        List<ViewStatsDto> viewStats = new ArrayList<>(merged.values());
+        viewStats.sort(Comparator.comparing(ViewStatsDto::getHits).reversed());
+        return viewStats;
+    }
+
+    private List<ViewStatsDto> getStats(String serverUrl, String start, String end, List<String> uris,
+                                        Boolean unique) {
         Map<String, Object> parameters = new HashMap<>();
 
         parameters.put("start", start);
         parameters.put("end", end);
-        parameters.put("uris", uris);
+        parameters.put("uris", uris == null ? null : String.join(",", uris));
         parameters.put("unique", unique);
-        ResponseEntity<String> response = restTemplate.getForEntity(
-                serverUrl + "/stats?start={start}&end={end}&uris={uris}&unique={unique}",
-                String.class, parameters);
+        ViewStatsDto[] viewStats = restTemplate.getForObject(
+                serverUrl + "/stats?start={start}&end={end}" + (uris == null ? "" : "&uris={uris}") + "&unique={unique}",
+                ViewStatsDto[].class, parameters);
+        return viewStats == null ? List.of() : Arrays.asList(viewStats);
+    }
 
-        ObjectMapper objectMapper = new ObjectMapper();
+    private static List<ViewStatsDto> copyOf(List<ViewStatsDto> viewStats) {
+        List<ViewStatsDto> copies = new ArrayList<>(viewStats.size());
+        for (ViewStatsDto shared : viewStats) {
+            ViewStatsDto copy = new ViewStatsDto();
+            copy.setApp(shared.getApp());
+            copy.setUri(shared.getUri());
+            copy.setHits(shared.getHits());
+            copy.setHitsLower(shared.getHitsLower());
+            copy.setHitsUpper(shared.getHitsUpper());
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    private static List<ViewStatsDto> join(Future<List<ViewStatsDto>> response) {
         try {
-            return Arrays.asList(objectMapper.readValue(response.getBody(), ViewStatsDto[].class));
-        } catch (JsonProcessingException exception) {
-            throw new RuntimeException(String.format("Json processing error: %s", exception.getMessage()));
+            return response.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for stats shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
         }
     }
+
+    private record StatsRequest(String start, String end, List<String> uris, boolean unique) {
+    }
 }
\ No newline at end of file
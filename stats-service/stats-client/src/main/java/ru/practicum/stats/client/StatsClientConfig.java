@@ -0,0 +1,35 @@
+package ru.practicum.stats.client;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+@Configuration
+public class StatsClientConfig {
+
+    /**
+     * Transport of {@link StatsClient}: the JDK client keeps connections to the stats-servers alive in its pool and,
+     * with {@code stats-server.http.version=HTTP_2}, multiplexes requests over one connection per server that
+     * accepts HTTP/2. HTTP/1.1 is the default, as it is cheaper for both sides on a local network. Responses are read
+     * from the stream by the converters of the builder, with the application's ObjectMapper.
+     */
+    @Bean
+    public RestTemplate statsRestTemplate(RestTemplateBuilder restTemplateBuilder,
+                                          @Value("${stats-server.http.version:HTTP_1_1}") HttpClient.Version version,
+                                          @Value("${stats-server.http.connect-timeout-ms:1000}") long connectTimeoutMs,
+                                          @Value("${stats-server.http.read-timeout-ms:5000}") long readTimeoutMs) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(version)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return restTemplateBuilder.requestFactory(() -> requestFactory).build();
+    }
+}
@@ -0,0 +1,192 @@
+package ru.practicum.stats.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU cache of view counts per uri for {@link StatsClient#getStats}. Only requests that end at about the
+ * current time are cached, keyed by start, uri and uniqueness, so a cached count lags the server by at most the
+ * age of its entry. An entry is fresh for {@code stats-server.cache.ttl-ms}; for {@code stats-server.cache.stale-ms}
+ * after that it is still served while one background request refreshes it, and older entries are loaded again on
+ * the calling thread. The uris of a request that are missing from the cache are loaded in one request.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats-server.cache.enabled", havingValue = "true")
+public class ViewStatsCache implements DisposableBean {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final Map<CacheKey, Entry> entries;
+    private final long ttlNanos;
+    private final long staleNanos;
+    private final ExecutorService refresher = Executors.newVirtualThreadPerTaskExecutor();
+    private final Counter hitCounter;
+    private final Counter staleCounter;
+    private final Counter missCounter;
+    private final Counter evictionCounter;
+    private final Counter refreshFailedCounter;
+
+    public ViewStatsCache(MeterRegistry meterRegistry,
+                          @Value("${stats-server.cache.max-entries:10000}") int maxEntries,
+                          @Value("${stats-server.cache.ttl-ms:1000}") long ttlMs,
+                          @Value("${stats-server.cache.stale-ms:30000}") long staleMs) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.staleNanos = TimeUnit.MILLISECONDS.toNanos(staleMs);
+        this.hitCounter = meterRegistry.counter("stats.client.cache.requests", "result", "hit");
+        this.staleCounter = meterRegistry.counter("stats.client.cache.requests", "result", "stale");
+        this.missCounter = meterRegistry.counter("stats.client.cache.requests", "result", "miss");
+        this.evictionCounter = meterRegistry.counter("stats.client.cache.evictions");
+        this.refreshFailedCounter = meterRegistry.counter("stats.client.cache.refresh.failed");
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictionCounter.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        meterRegistry.gaugeMapSize("stats.client.cache.size", Tags.empty(), entries);
+        meterRegistry.gauge("stats.client.cache.hit.ratio", this, ViewStatsCache::getHitRatio);
+    }
+
+    /**
+     * Whether a request ending at {@code end} may be answered from the cache, that is it ends at most one TTL
+     * before now.
+     */
+    public boolean accepts(String end) {
+        try {
+            return !LocalDateTime.parse(end, FORMATTER)
+                    .isBefore(LocalDateTime.now().minusNanos(ttlNanos).withNano(0));
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the stats of the uris, loading the missing and refreshing the stale ones with {@code loader}, which
+     * requests the stats of the given uris from the stats-servers.
+     */
+    public List<ViewStatsDto> getStats(String start, List<String> uris, boolean unique,
+                                       Function<List<String>, List<ViewStatsDto>> loader) {
+        long now = System.nanoTime();
+        List<ViewStatsDto> viewStats = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        List<String> stale = new ArrayList<>();
+        Set<String> distinctUris = new LinkedHashSet<>(uris);
+        synchronized (this) {
+            for (String uri : distinctUris) {
+                Entry entry = entries.get(new CacheKey(start, uri, unique));
+                long age = entry == null ? Long.MAX_VALUE : now - entry.loadedAt;
+                if (age > ttlNanos + staleNanos) {
+                    missing.add(uri);
+                    continue;
+                }
+                viewStats.addAll(entry.viewStats);
+                if (age > ttlNanos && !entry.refreshing) {
+                    entry.refreshing = true;
+                    stale.add(uri);
+                }
+            }
+        }
+        hitCounter.increment(distinctUris.size() - missing.size() - stale.size());
+        staleCounter.increment(stale.size());
+        missCounter.increment(missing.size());
+        if (!stale.isEmpty()) {
+            refresher.execute(() -> refresh(start, stale, unique, loader));
+        }
+        if (!missing.isEmpty()) {
+            viewStats.addAll(load(start, missing, unique, loader));
+        }
+        viewStats.sort(Comparator.comparing(ViewStatsDto::getHits).reversed());
+        return viewStats;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+
+    private double getHitRatio() {
+        double requests = hitCounter.count() + staleCounter.count() + missCounter.count();
+        return requests == 0 ? 0 : (hitCounter.count() + staleCounter.count()) / requests;
+    }
+
+    private void refresh(String start, List<String> uris, boolean unique,
+                         Function<List<String>, List<ViewStatsDto>> loader) {
+        try {
+            load(start, uris, unique, loader);
+        } catch (RuntimeException e) {
+            refreshFailedCounter.increment();
+            log.debug("Failed to refresh cached stats of {} uris: {}", uris.size(), e.getMessage());
+            synchronized (this) {
+                for (String uri : uris) {
+                    Entry entry = entries.get(new CacheKey(start, uri, unique));
+                    if (entry != null) {
+                        entry.refreshing = false;
+                    }
+                }
+            }
+        }
+    }
+
+    private List<ViewStatsDto> load(String start, List<String> uris, boolean unique,
+                                    Function<List<String>, List<ViewStatsDto>> loader) {
+        long loadedAt = System.nanoTime();
+        List<ViewStatsDto> loaded = loader.apply(uris);
+        Map<String, List<ViewStatsDto>> byUri = new HashMap<>();
+        for (String uri : uris) {
+            byUri.put(uri, new ArrayList<>(1));
+        }
+        for (ViewStatsDto viewStats : loaded) {
+            byUri.computeIfAbsent(viewStats.getUri(), uri -> new ArrayList<>(1)).add(viewStats);
+        }
+        synchronized (this) {
+            byUri.forEach((uri, viewStats) ->
+                    entries.put(new CacheKey(start, uri, unique), new Entry(List.copyOf(viewStats), loadedAt)));
+        }
+        return loaded;
+    }
+
+    private record CacheKey(String start, String uri, boolean unique) {
+    }
+
+    private static final class Entry {
+        private final List<ViewStatsDto> viewStats;
+        private final long loadedAt;
+        private boolean refreshing;
+
+        private Entry(List<ViewStatsDto> viewStats, long loadedAt) {
+            this.viewStats = viewStats;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
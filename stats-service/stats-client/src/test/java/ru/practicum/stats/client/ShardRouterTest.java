@@ -0,0 +1,71 @@
+package ru.practicum.stats.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardRouterTest {
+    private static final int URIS = 100_000;
+
+    @Test
+    void routesEverythingToSingleServer() {
+        ShardRouter router = new ShardRouter(" http://a:9090 , http://a:9090,", 160);
+
+        assertEquals(List.of("http://a:9090"), router.getShards());
+        assertFalse(router.isSharded());
+        assertEquals("http://a:9090", router.route("/events/1"));
+        assertThrows(IllegalArgumentException.class, () -> new ShardRouter(" , ", 160));
+    }
+
+    @Test
+    void spreadsUrisEvenly() {
+        ShardRouter router = new ShardRouter("http://a:9090,http://b:9090,http://c:9090,http://d:9090", 160);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < URIS; i++) {
+            counts.merge(router.route("/events/" + i), 1, Integer::sum);
+        }
+
+        assertEquals(4, counts.size());
+        for (Map.Entry<String, Integer> count : counts.entrySet()) {
+            assertTrue(count.getValue() > URIS * 0.18 && count.getValue() < URIS * 0.32, count.toString());
+        }
+    }
+
+    @Test
+    void movesOnlyUrisOfAddedNode() {
+        ShardRouter before = new ShardRouter("http://a:9090,http://b:9090,http://c:9090", 160);
+        ShardRouter after = new ShardRouter("http://a:9090,http://b:9090,http://c:9090,http://d:9090", 160);
+
+        int moved = 0;
+        for (int i = 0; i < URIS; i++) {
+            String uri = "/events/" + i;
+            String owner = after.route(uri);
+            if (!owner.equals(before.route(uri))) {
+                assertEquals("http://d:9090", owner, uri);
+                moved++;
+            }
+        }
+
+        assertTrue(moved > URIS * 0.18 && moved < URIS * 0.32, String.valueOf(moved));
+    }
+
+    @Test
+    void groupsUrisByShardInOrderOfAppearance() {
+        ShardRouter router = new ShardRouter("http://a:9090,http://b:9090", 160);
+        List<String> uris = List.of("/events/1", "/events/2", "/events/3", "/events/4", "/events/5", "/events/6");
+
+        Map<String, List<String>> groups = router.group(uris);
+
+        assertEquals(uris.stream().map(router::route).distinct().toList(), List.copyOf(groups.keySet()));
+        groups.forEach((shard, shardUris) ->
+                assertEquals(uris.stream().filter(uri -> router.route(uri).equals(shard)).toList(), shardUris));
+    }
+}
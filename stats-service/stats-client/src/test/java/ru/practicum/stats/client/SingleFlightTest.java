@@ -0,0 +1,134 @@
+package ru.practicum.stats.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+    private static final int FOLLOWERS = 8;
+
+    private final SingleFlight<String, List<String>> singleFlight = new SingleFlight<>();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void sharesResultOfCallInFlight() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> result = List.of("shared");
+
+        List<Object> outcomes = coalesce(() -> {
+            calls.incrementAndGet();
+            await(release);
+            return result;
+        }, release);
+
+        assertEquals(1, calls.get());
+        for (Object outcome : outcomes) {
+            assertSame(result, outcome);
+        }
+    }
+
+    @Test
+    void sharesExceptionOfCallInFlight() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("server is down");
+
+        List<Object> outcomes = coalesce(() -> {
+            calls.incrementAndGet();
+            await(release);
+            throw failure;
+        }, release);
+
+        assertEquals(1, calls.get());
+        for (Object outcome : outcomes) {
+            assertSame(failure, outcome);
+        }
+    }
+
+    @Test
+    void runsEveryCallThatStartsAfterThePreviousOneEnded() {
+        singleFlight.execute("key", () -> List.of(String.valueOf(calls.incrementAndGet())));
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+                () -> singleFlight.execute("key", () -> {
+                    calls.incrementAndGet();
+                    throw new IllegalStateException("failed");
+                }));
+
+        assertEquals("failed", failure.getMessage());
+        assertEquals(List.of("3"), singleFlight.execute("key", () -> List.of(String.valueOf(calls.incrementAndGet()))));
+        assertEquals(List.of("other"), singleFlight.execute("other", () -> List.of("other")));
+    }
+
+    /**
+     * Runs the call on a leader thread and, while it is blocked, the same key on {@link #FOLLOWERS} more threads;
+     * returns the result or exception every thread got.
+     */
+    private List<Object> coalesce(Supplier<List<String>> call, CountDownLatch release) throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        try (ExecutorService executor = Executors.newCachedThreadPool()) {
+            List<Future<Object>> outcomes = new ArrayList<>();
+            outcomes.add(executor.submit(() -> outcome(() -> {
+                started.countDown();
+                return call.get();
+            })));
+            started.await();
+            for (int i = 0; i < FOLLOWERS; i++) {
+                outcomes.add(executor.submit(() -> {
+                    synchronized (threads) {
+                        threads.add(Thread.currentThread());
+                    }
+                    return outcome(() -> {
+                        throw new AssertionError("Follower ran the call");
+                    });
+                }));
+            }
+            awaitWaiting(threads);
+            release.countDown();
+            List<Object> results = new ArrayList<>();
+            for (Future<Object> outcome : outcomes) {
+                results.add(outcome.get());
+            }
+            return results;
+        }
+    }
+
+    private Object outcome(Supplier<List<String>> call) {
+        try {
+            return singleFlight.execute("key", call);
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    private static void awaitWaiting(List<Thread> threads) throws InterruptedException {
+        while (true) {
+            synchronized (threads) {
+                if (threads.size() == FOLLOWERS
+                        && threads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING)) {
+                    return;
+                }
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package ru.practicum.stats.client;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatsBatcherTest {
+    private static final String START = "2024-01-01 00:00:00";
+    private static final String END = "2024-01-31 00:00:00";
+
+    private final List<List<String>> loads = new CopyOnWriteArrayList<>();
+    private final Function<List<String>, List<ViewStatsDto>> loader = uris -> {
+        loads.add(uris);
+        return uris.stream().map(uri -> viewStats(uri, uri.length())).toList();
+    };
+
+    @Test
+    void combinesLookupsOfOneWindowAndSlicesEachCallersUris() throws Exception {
+        StatsBatcher batcher = new StatsBatcher(200, 100);
+        List<List<String>> lookups = List.of(List.of("/a", "/b"), List.of("/b", "/cc"), List.of("/ddd"));
+
+        List<List<ViewStatsDto>> results = lookUp(batcher, lookups);
+
+        assertEquals(1, loads.size());
+        assertEquals(List.of("/a", "/b", "/cc", "/ddd"), loads.getFirst().stream().sorted().toList());
+        for (int i = 0; i < lookups.size(); i++) {
+            assertEquals(lookups.get(i), results.get(i).stream().map(ViewStatsDto::getUri).toList());
+        }
+        assertEquals(4L, results.get(2).getFirst().getHits());
+    }
+
+    @Test
+    void sendsBatchAsSoonAsItIsFull() throws Exception {
+        StatsBatcher batcher = new StatsBatcher(TimeUnit.MINUTES.toMillis(1), 4);
+        long startedAt = System.nanoTime();
+
+        List<List<ViewStatsDto>> results = lookUp(batcher, List.of(List.of("/a", "/b"), List.of("/c", "/d")));
+
+        assertTrue(System.nanoTime() - startedAt < TimeUnit.SECONDS.toNanos(10));
+        assertEquals(List.of(List.of("/a", "/b", "/c", "/d")), loads);
+        assertEquals(2, results.get(0).size());
+        assertEquals(2, results.get(1).size());
+    }
+
+    @Test
+    void keepsRangesAndUniquenessInSeparateBatches() {
+        StatsBatcher batcher = new StatsBatcher(1, 100);
+
+        batcher.getStats(START, END, List.of("/a"), false, loader);
+        batcher.getStats(START, END, List.of("/a"), true, loader);
+        batcher.getStats("2024-01-02 00:00:00", END, List.of("/a"), false, loader);
+
+        assertEquals(3, loads.size());
+    }
+
+    @Test
+    void failsEveryCallerOfFailedBatch() throws Exception {
+        StatsBatcher batcher = new StatsBatcher(200, 100);
+        IllegalStateException failure = new IllegalStateException("server is down");
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> calls = new ArrayList<>();
+            for (String uri : List.of("/a", "/b")) {
+                calls.add(executor.submit(() -> batcher.getStats(START, END, List.of(uri), false, uris -> {
+                    throw failure;
+                })));
+            }
+            for (Future<?> call : calls) {
+                try {
+                    call.get();
+                } catch (ExecutionException e) {
+                    assertSame(failure, e.getCause());
+                    continue;
+                }
+                throw new AssertionError("Batched lookup did not fail");
+            }
+        }
+    }
+
+    private List<List<ViewStatsDto>> lookUp(StatsBatcher batcher, List<List<String>> lookups) throws Exception {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<ViewStatsDto>>> calls = new ArrayList<>();
+            for (List<String> uris : lookups) {
+                calls.add(executor.submit(() -> batcher.getStats(START, END, uris, false, loader)));
+                Thread.sleep(10);
+            }
+            List<List<ViewStatsDto>> results = new ArrayList<>();
+            for (Future<List<ViewStatsDto>> call : calls) {
+                results.add(call.get());
+            }
+            return results;
+        }
+    }
+
+    private static ViewStatsDto viewStats(String uri, long hits) {
+        ViewStatsDto viewStats = new ViewStatsDto();
+        viewStats.setApp("main");
+        viewStats.setUri(uri);
+        viewStats.setHits(hits);
+        return viewStats;
+    }
+}
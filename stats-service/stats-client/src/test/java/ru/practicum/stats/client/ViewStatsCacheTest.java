@@ -0,0 +1,156 @@
+package ru.practicum.stats.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ViewStatsCacheTest {
+    private static final String START = "2024-01-01 00:00:00";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong version = new AtomicLong(1);
+    private final List<List<String>> loads = new CopyOnWriteArrayList<>();
+    private final Function<List<String>, List<ViewStatsDto>> loader = uris -> {
+        loads.add(uris);
+        return uris.stream().map(uri -> viewStats(uri, version.get())).toList();
+    };
+    private ViewStatsCache cache;
+
+    @AfterEach
+    void destroy() {
+        cache.destroy();
+    }
+
+    @Test
+    void loadsOnlyMissingUrisInOneRequest() {
+        cache = new ViewStatsCache(meterRegistry, 100, TimeUnit.MINUTES.toMillis(1), 0);
+
+        cache.getStats(START, List.of("/a", "/b"), false, loader);
+        List<ViewStatsDto> viewStats = cache.getStats(START, List.of("/a", "/b", "/c", "/c"), false, loader);
+
+        assertEquals(List.of(List.of("/a", "/b"), List.of("/c")), loads);
+        assertEquals(List.of("/a", "/b", "/c"), viewStats.stream().map(ViewStatsDto::getUri).sorted().toList());
+        cache.getStats(START, List.of("/a"), true, loader);
+        cache.getStats("2024-01-02 00:00:00", List.of("/a"), false, loader);
+        assertEquals(4, loads.size());
+        assertEquals(2.0 / 7, meterRegistry.get("stats.client.cache.hit.ratio").gauge().value(), 1e-9);
+    }
+
+    @Test
+    void servesStaleEntryWhileOneBackgroundRequestRefreshesIt() throws Exception {
+        cache = new ViewStatsCache(meterRegistry, 100, 500, TimeUnit.MINUTES.toMillis(1));
+        cache.getStats(START, List.of("/a"), false, loader);
+        Thread.sleep(600);
+        version.set(2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch refreshed = new CountDownLatch(1);
+        Function<List<String>, List<ViewStatsDto>> slowLoader = uris -> {
+            await(release);
+            List<ViewStatsDto> viewStats = loader.apply(uris);
+            refreshed.countDown();
+            return viewStats;
+        };
+
+        assertEquals(1L, cache.getStats(START, List.of("/a"), false, slowLoader).getFirst().getHits());
+        assertEquals(1L, cache.getStats(START, List.of("/a"), false, slowLoader).getFirst().getHits());
+        release.countDown();
+        assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+        Thread.sleep(20);
+
+        assertEquals(2L, cache.getStats(START, List.of("/a"), false, loader).getFirst().getHits());
+        assertEquals(2, loads.size());
+        assertEquals(2, meterRegistry.get("stats.client.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(1, meterRegistry.get("stats.client.cache.requests").tag("result", "stale").counter().count());
+    }
+
+    @Test
+    void keepsServingStaleEntryAfterFailedRefresh() throws Exception {
+        cache = new ViewStatsCache(meterRegistry, 100, 50, TimeUnit.MINUTES.toMillis(1));
+        cache.getStats(START, List.of("/a"), false, loader);
+        Thread.sleep(100);
+        CountDownLatch failed = new CountDownLatch(1);
+
+        assertEquals(1L, cache.getStats(START, List.of("/a"), false, uris -> {
+            failed.countDown();
+            throw new IllegalStateException("server is down");
+        }).getFirst().getHits());
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+
+        version.set(2);
+        assertEquals(1L, cache.getStats(START, List.of("/a"), false, loader).getFirst().getHits());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (loads.size() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+            cache.getStats(START, List.of("/a"), false, loader);
+        }
+        assertEquals(List.of(List.of("/a"), List.of("/a")), loads);
+        assertEquals(1, meterRegistry.get("stats.client.cache.refresh.failed").counter().count());
+    }
+
+    @Test
+    void reloadsExpiredEntryOnCallingThread() throws Exception {
+        cache = new ViewStatsCache(meterRegistry, 100, 20, 20);
+        cache.getStats(START, List.of("/a"), false, loader);
+        Thread.sleep(100);
+        version.set(2);
+
+        assertEquals(2L, cache.getStats(START, List.of("/a"), false, loader).getFirst().getHits());
+        assertEquals(2, meterRegistry.get("stats.client.cache.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() {
+        cache = new ViewStatsCache(meterRegistry, 2, TimeUnit.MINUTES.toMillis(1), 0);
+
+        cache.getStats(START, List.of("/a"), false, loader);
+        cache.getStats(START, List.of("/b"), false, loader);
+        cache.getStats(START, List.of("/a"), false, loader);
+        cache.getStats(START, List.of("/c"), false, loader);
+        cache.getStats(START, List.of("/a", "/b"), false, loader);
+
+        assertEquals(List.of(List.of("/a"), List.of("/b"), List.of("/c"), List.of("/b")), loads);
+        assertEquals(2, meterRegistry.get("stats.client.cache.evictions").counter().count());
+    }
+
+    @Test
+    void acceptsOnlyRequestsEndingAboutNow() {
+        cache = new ViewStatsCache(meterRegistry, 100, 1000, 0);
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+        assertTrue(cache.accepts(LocalDateTime.now().format(formatter)));
+        assertTrue(cache.accepts(LocalDateTime.now().plusDays(1).format(formatter)));
+        assertFalse(cache.accepts(LocalDateTime.now().minusMinutes(1).format(formatter)));
+        assertFalse(cache.accepts("now"));
+    }
+
+    private static ViewStatsDto viewStats(String uri, long hits) {
+        ViewStatsDto viewStats = new ViewStatsDto();
+        viewStats.setApp("main");
+        viewStats.setUri(uri);
+        viewStats.setHits(hits);
+        return viewStats;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package ru.practicum.stats.dto;
+
+/**
+ * Length-prefixed binary hit ingestion protocol. Every frame is a big-endian int with the number of bytes that
+ * follow, a type byte and the payload:
+ * <ul>
+ *     <li>{@link #DEFINE}: byte kind ({@link #KIND_APP} or {@link #KIND_URI}), int id, short length, UTF-8 name.
+ *     Ids are scoped to the connection and must be defined in order starting from 0 for each kind.</li>
+ *     <li>{@link #HITS}: int count, then per hit int app id, int uri id, long timestamp, byte length, UTF-8 ip.
+ *     The timestamp is the wall-clock time of the HTTP API in milliseconds since 1970-01-01 00:00:00.</li>
+ *     <li>{@link #ACK}: sent by the server for every {@link #HITS} frame once it is saved: int accepted,
+ *     int rejected.</li>
+ * </ul>
+ * A malformed frame closes the connection.
+ */
+public final class BinaryHitProtocol {
+    public static final byte DEFINE = 1;
+    public static final byte HITS = 2;
+    public static final byte ACK = 3;
+    public static final byte KIND_APP = 0;
+    public static final byte KIND_URI = 1;
+    public static final int HEADER_BYTES = Integer.BYTES + 1;
+    public static final int HIT_FIXED_BYTES = 2 * Integer.BYTES + Long.BYTES + 1;
+
+    private BinaryHitProtocol() {
+    }
+}
@@ -0,0 +1,34 @@
+package ru.practicum.stats.dto;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 64-bit FNV-1a hash finished with the murmur3 mixer, so every bit depends on every byte. The client places uris on
+ * its shard ring with it and the server hashes ips into sketches and sample buckets; changing it moves uris between
+ * shards and makes stored sketches and sample buckets disagree with new hits.
+ */
+public final class HitHash {
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private HitHash() {
+    }
+
+    public static long hash(byte[] value) {
+        long hash = OFFSET_BASIS;
+        for (byte b : value) {
+            hash ^= b & 0xff;
+            hash *= PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    public static long hash(String value) {
+        return hash(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,15 @@
+package ru.practicum.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class HitImportResultDto {
+    private long accepted;
+    private long rejected;
+    private long durationMs;
+    private long hitsPerSecond;
+}
@@ -1,5 +1,6 @@
 package ru.practicum.stats.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 @Data
@@ -7,4 +8,8 @@ public class ViewStatsDto {
     private String app;
     private String uri;
     private Long hits;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long hitsLower;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long hitsUpper;
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package ru.practicum.stats.server.config;
+
+import org.springframework.boot.jdbc.DatabaseDriver;
+
+public enum DatabaseDialect {
+    POSTGRESQL,
+    H2;
+
+    public static DatabaseDialect fromJdbcUrl(String url) {
+        return DatabaseDriver.fromJdbcUrl(url) == DatabaseDriver.POSTGRESQL ? POSTGRESQL : H2;
+    }
+}
@@ -0,0 +1,56 @@
+package ru.practicum.stats.server.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import javax.sql.DataSource;
+
+@Configuration
+@EnableScheduling
+public class StatsServerConfig {
+    /**
+     * Threads that write outside the admission permits: the scheduler, the write-behind writer and the sketch
+     * flusher.
+     */
+    private static final int BACKGROUND_WRITERS = 3;
+
+    @Bean
+    public DatabaseDialect databaseDialect(@Value("${spring.datasource.url}") String url) {
+        return DatabaseDialect.fromJdbcUrl(url);
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource readDataSource(DataSourceProperties properties) {
+        return pool(properties, "stats-read");
+    }
+
+    @Bean
+    @ConfigurationProperties("stats.datasource.write")
+    public HikariDataSource writeDataSource(DataSourceProperties properties,
+                                            @Value("${stats.admission.max-concurrent-writes:6}") int maxWrites) {
+        HikariDataSource dataSource = pool(properties, "stats-write");
+        dataSource.setMaximumPoolSize(maxWrites + BACKGROUND_WRITERS);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("readDataSource") DataSource readDataSource,
+                                 @Qualifier("writeDataSource") DataSource writeDataSource) {
+        return new WriteRoutingDataSource(readDataSource, writeDataSource);
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, String name) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(name);
+        return dataSource;
+    }
+}
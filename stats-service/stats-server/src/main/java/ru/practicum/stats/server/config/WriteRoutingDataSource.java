@@ -0,0 +1,42 @@
+package ru.practicum.stats.server.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.Map;
+
+/**
+ * Connection pool split between queries and writers. Code run with {@link #write} takes its connections from the
+ * write pool, everything else from the read pool, so ingestion and background jobs never hold the connections of
+ * {@code /stats} readers whatever their number. A transaction keeps the connection it started with.
+ */
+public class WriteRoutingDataSource extends AbstractRoutingDataSource {
+    private static final ThreadLocal<Boolean> WRITING = ThreadLocal.withInitial(() -> false);
+
+    public WriteRoutingDataSource(Object readDataSource, Object writeDataSource) {
+        setTargetDataSources(Map.of(Pool.READ, readDataSource, Pool.WRITE, writeDataSource));
+        setDefaultTargetDataSource(readDataSource);
+    }
+
+    /**
+     * Runs the write with connections of the write pool.
+     */
+    public static void write(Runnable write) {
+        boolean writing = WRITING.get();
+        WRITING.set(true);
+        try {
+            write.run();
+        } finally {
+            WRITING.set(writing);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return WRITING.get() ? Pool.WRITE : Pool.READ;
+    }
+
+    private enum Pool {
+        READ,
+        WRITE
+    }
+}
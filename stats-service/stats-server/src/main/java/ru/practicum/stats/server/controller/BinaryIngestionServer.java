@@ -0,0 +1,322 @@
+package ru.practicum.stats.server.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.service.StatService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static ru.practicum.stats.dto.BinaryHitProtocol.ACK;
+import static ru.practicum.stats.dto.BinaryHitProtocol.DEFINE;
+import static ru.practicum.stats.dto.BinaryHitProtocol.HEADER_BYTES;
+import static ru.practicum.stats.dto.BinaryHitProtocol.HITS;
+import static ru.practicum.stats.dto.BinaryHitProtocol.HIT_FIXED_BYTES;
+import static ru.practicum.stats.dto.BinaryHitProtocol.KIND_APP;
+import static ru.practicum.stats.dto.BinaryHitProtocol.KIND_URI;
+
+/**
+ * NIO listener for {@link ru.practicum.stats.dto.BinaryHitProtocol}. A single selector thread reads and decodes
+ * frames straight from each connection's buffer; app and uri names come from the connection dictionary, so the
+ * only per-hit allocations are the hit itself, its ip and its timestamp. Decoded batches are saved on worker
+ * threads and the connection stops reading until the batch is acknowledged.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.binary.enabled", havingValue = "true")
+public class BinaryIngestionServer implements SmartLifecycle {
+    private final StatService statService;
+    private final int port;
+    private final int maxFrameBytes;
+    private final int maxDictionarySize;
+    private final int workers;
+    private final Queue<Connection> completed = new ConcurrentLinkedQueue<>();
+    private volatile boolean running;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private ExecutorService executor;
+    private Thread selectorThread;
+
+    public BinaryIngestionServer(StatService statService,
+                                 @Value("${stats.binary.port:9091}") int port,
+                                 @Value("${stats.binary.max-frame-bytes:1048576}") int maxFrameBytes,
+                                 @Value("${stats.binary.max-dictionary-size:100000}") int maxDictionarySize,
+                                 @Value("${stats.binary.workers:4}") int workers) {
+        this.statService = statService;
+        this.port = port;
+        this.maxFrameBytes = maxFrameBytes;
+        this.maxDictionarySize = maxDictionarySize;
+        this.workers = workers;
+    }
+
+    @Override
+    public void start() {
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open binary ingestion port " + port, e);
+        }
+        executor = Executors.newFixedThreadPool(workers);
+        running = true;
+        selectorThread = new Thread(this::serve, "hit-binary-ingestion");
+        selectorThread.start();
+        log.info("Binary hit ingestion listens on port {}", port);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+            executor.shutdown();
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void serve() {
+        try {
+            while (running) {
+                selector.select();
+                for (Connection connection = completed.poll(); connection != null; connection = completed.poll()) {
+                    acknowledge(connection);
+                }
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isReadable()) {
+                            read(connection);
+                        } else if (key.isWritable()) {
+                            write(connection);
+                        }
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            log.error("Binary hit ingestion stopped: {}", e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                close(key.channel());
+            }
+            close(selector);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        Connection connection = new Connection(channel, maxFrameBytes);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+
+    private void read(Connection connection) {
+        try {
+            if (connection.channel.read(connection.in) < 0) {
+                close(connection.channel);
+                return;
+            }
+            process(connection);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Close binary ingestion connection {}: {}", address(connection), e.getMessage());
+            close(connection.channel);
+        }
+    }
+
+    private void process(Connection connection) {
+        ByteBuffer in = connection.in.flip();
+        while (in.remaining() >= HEADER_BYTES) {
+            int length = in.getInt(in.position());
+            if (length < 1 || length > maxFrameBytes) {
+                throw new IllegalArgumentException("Wrong frame length " + length);
+            }
+            if (in.remaining() < Integer.BYTES + length) {
+                break;
+            }
+            int end = in.position() + Integer.BYTES + length;
+            in.position(in.position() + Integer.BYTES);
+            byte type = in.get();
+            ByteBuffer frame = in.slice(in.position(), end - in.position());
+            in.position(end);
+            if (type == DEFINE) {
+                define(connection, frame);
+            } else if (type == HITS) {
+                Batch batch = decode(connection, frame);
+                connection.key.interestOps(0);
+                executor.execute(() -> save(connection, batch));
+                break;
+            } else {
+                throw new IllegalArgumentException("Unknown frame type " + type);
+            }
+        }
+        in.compact();
+    }
+
+    private void define(Connection connection, ByteBuffer frame) {
+        byte kind = frame.get();
+        List<String> names = kind == KIND_APP ? connection.apps : kind == KIND_URI ? connection.uris : null;
+        if (names == null) {
+            throw new IllegalArgumentException("Unknown dictionary kind " + kind);
+        }
+        int id = frame.getInt();
+        if (id != names.size() || id >= maxDictionarySize) {
+            throw new IllegalArgumentException("Wrong dictionary id " + id);
+        }
+        int length = Short.toUnsignedInt(frame.getShort());
+        if (length != frame.remaining()) {
+            throw new IllegalArgumentException("Wrong dictionary entry length " + length);
+        }
+        names.add(new String(frame.array(), frame.arrayOffset() + frame.position(), length, StandardCharsets.UTF_8));
+    }
+
+    private Batch decode(Connection connection, ByteBuffer frame) {
+        int count = frame.getInt();
+        if (count < 0 || (long) count * HIT_FIXED_BYTES > frame.remaining()) {
+            throw new IllegalArgumentException("Wrong hit count " + count);
+        }
+        List<EndpointHit> hits = new ArrayList<>(count);
+        int rejected = 0;
+        byte[] array = frame.array();
+        for (int i = 0; i < count; i++) {
+            int appId = frame.getInt();
+            int uriId = frame.getInt();
+            long timestamp = frame.getLong();
+            int ipLength = Byte.toUnsignedInt(frame.get());
+            if (ipLength > frame.remaining()) {
+                throw new IllegalArgumentException("Wrong ip length " + ipLength);
+            }
+            int ipOffset = frame.arrayOffset() + frame.position();
+            frame.position(frame.position() + ipLength);
+            if (appId < 0 || appId >= connection.apps.size() || uriId < 0 || uriId >= connection.uris.size()
+                    || ipLength == 0) {
+                rejected++;
+                continue;
+            }
+            EndpointHit hit = new EndpointHit();
+            hit.setApp(connection.apps.get(appId));
+            hit.setUri(connection.uris.get(uriId));
+            hit.setIp(new String(array, ipOffset, ipLength, StandardCharsets.UTF_8));
+            hit.setTimestamp(LocalDateTime.ofEpochSecond(Math.floorDiv(timestamp, 1000), 0, ZoneOffset.UTC));
+            hits.add(hit);
+        }
+        if (frame.hasRemaining()) {
+            throw new IllegalArgumentException("Unexpected " + frame.remaining() + " bytes after hits");
+        }
+        return new Batch(hits, rejected);
+    }
+
+    private void save(Connection connection, Batch batch) {
+        int accepted = batch.hits().size();
+        int rejected = batch.rejected();
+        try {
+            int notStored = statService.saveDecodedHits(batch.hits());
+            accepted -= notStored;
+            rejected += notStored;
+        } catch (RuntimeException e) {
+            log.error("Failed to save {} binary hits: {}", accepted, e.getMessage());
+            rejected += accepted;
+            accepted = 0;
+        }
+        connection.out.clear()
+                .putInt(1 + 2 * Integer.BYTES)
+                .put(ACK)
+                .putInt(accepted)
+                .putInt(rejected)
+                .flip();
+        completed.add(connection);
+        selector.wakeup();
+    }
+
+    private void acknowledge(Connection connection) {
+        if (connection.key.isValid()) {
+            connection.key.interestOps(SelectionKey.OP_WRITE);
+            write(connection);
+        }
+    }
+
+    private void write(Connection connection) {
+        try {
+            connection.channel.write(connection.out);
+            if (!connection.out.hasRemaining()) {
+                connection.key.interestOps(SelectionKey.OP_READ);
+                process(connection);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Close binary ingestion connection {}: {}", address(connection), e.getMessage());
+            close(connection.channel);
+        }
+    }
+
+    private String address(Connection connection) {
+        try {
+            return String.valueOf(connection.channel.getRemoteAddress());
+        } catch (IOException e) {
+            return "unknown";
+        }
+    }
+
+    private void close(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            log.debug("Failed to close {}: {}", closeable, e.getMessage());
+        }
+    }
+
+    private record Batch(List<EndpointHit> hits, int rejected) {
+    }
+
+    private static final class Connection {
+        private final SocketChannel channel;
+        private final ByteBuffer in;
+        private final ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + 2 * Integer.BYTES);
+        private final List<String> apps = new ArrayList<>();
+        private final List<String> uris = new ArrayList<>();
+        private SelectionKey key;
+
+        private Connection(SocketChannel channel, int maxFrameBytes) {
+            this.channel = channel;
+            this.in = ByteBuffer.allocate(Integer.BYTES + maxFrameBytes);
+        }
+    }
+}
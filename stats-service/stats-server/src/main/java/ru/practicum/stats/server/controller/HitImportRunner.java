@@ -0,0 +1,47 @@
+package ru.practicum.stats.server.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.server.service.HitImporter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Imports {@code stats.import.file} once the server has started, e.g.
+ * {@code java -jar stats-server.jar --stats.import.file=hits.ndjson.gz --stats.import.exit=true}. With
+ * {@code stats.import.exit} the application stops after the import instead of serving requests.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "stats.import.file")
+public class HitImportRunner implements ApplicationRunner {
+    private final HitImporter hitImporter;
+    private final ConfigurableApplicationContext context;
+
+    @Value("${stats.import.file}")
+    private String file;
+    @Value("${stats.import.exit:false}")
+    private boolean exit;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        log.info("Import hits from {}", file);
+        try (InputStream in = Files.newInputStream(Path.of(file))) {
+            hitImporter.importHits(in);
+        }
+        if (exit) {
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+}
@@ -1,13 +1,25 @@
 package ru.practicum.stats.server.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.HitBatchResultDto;
+import ru.practicum.stats.dto.HitImportResultDto;
+import ru.practicum.stats.dto.TimeSeriesPointDto;
 import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.service.HitImporter;
 import ru.practicum.stats.server.service.StatService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -17,6 +29,8 @@ import static ru.practicum.stats.server.config.ConfigUtil.DATE;
 @RequiredArgsConstructor
 public class StatServerController {
     private final StatService statService;
+    private final HitImporter hitImporter;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/hit")
     @ResponseStatus(HttpStatus.CREATED)
@@ -24,13 +38,74 @@ public class StatServerController {
         statService.saveHit(endpointHitDto);
     }
 
+    @PostMapping("/hit/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public HitBatchResultDto saveHits(@RequestBody List<EndpointHitDto> endpointHitDtos) {
+        return statService.saveHits(endpointHitDtos);
+    }
+
+    @PostMapping("/admin/import")
+    @ResponseStatus(HttpStatus.CREATED)
+    public HitImportResultDto importHits(InputStream body) throws IOException {
+        return hitImporter.importHits(body);
+    }
+
     @GetMapping("/stats")
     public List<ViewStatsDto> getStats(@DateTimeFormat(pattern = DATE)
                                        @RequestParam(value = "start") LocalDateTime start,
                                        @DateTimeFormat(pattern = DATE)
                                        @RequestParam(value = "end") LocalDateTime end,
                                        @RequestParam(required = false) List<String> uris,
-                                       @RequestParam(required = false, defaultValue = "false") Boolean unique) {
-        return statService.getStats(start, end, uris, unique);
+                                       @RequestParam(required = false, defaultValue = "false") Boolean unique,
+                                       @RequestParam(required = false, defaultValue = "false") Boolean approx,
+                                       @RequestParam(required = false) Double sample) {
+        return statService.getStats(start, end, uris, unique, approx, sample);
+    }
+
+    @GetMapping("/stats/top")
+    public List<ViewStatsDto> getTopStats(@DateTimeFormat(pattern = DATE)
+                                          @RequestParam(value = "start") LocalDateTime start,
+                                          @DateTimeFormat(pattern = DATE)
+                                          @RequestParam(value = "end") LocalDateTime end,
+                                          @RequestParam(required = false, defaultValue = "10") Integer n,
+                                          @RequestParam(required = false, defaultValue = "false") Boolean unique,
+                                          @RequestParam(required = false, defaultValue = "false") Boolean exact) {
+        return statService.getTopStats(start, end, n, unique, exact);
+    }
+
+    @GetMapping("/stats/timeseries")
+    public List<TimeSeriesPointDto> getTimeSeries(@RequestParam String uri,
+                                                  @RequestParam(required = false, defaultValue = "hour") String step,
+                                                  @DateTimeFormat(pattern = DATE)
+                                                  @RequestParam(value = "start") LocalDateTime start,
+                                                  @DateTimeFormat(pattern = DATE)
+                                                  @RequestParam(value = "end") LocalDateTime end) {
+        return statService.getTimeSeries(uri, step, start, end);
+    }
+
+    @GetMapping(value = "/stats", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamStats(
+            @DateTimeFormat(pattern = DATE) @RequestParam(value = "start") LocalDateTime start,
+            @DateTimeFormat(pattern = DATE) @RequestParam(value = "end") LocalDateTime end,
+            @RequestParam(required = false) List<String> uris,
+            @RequestParam(required = false, defaultValue = "false") Boolean unique,
+            @RequestParam(required = false, defaultValue = "false") Boolean approx,
+            @RequestParam(required = false) Double sample) {
+        statService.checkDateTime(start, end);
+        statService.checkSample(sample);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                statService.streamStats(start, end, uris, unique, approx, sample, viewStatsDto -> {
+                    try {
+                        generator.writeObject(viewStatsDto);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,7 @@
+package ru.practicum.stats.server.exception;
+
+public class WrongHitException extends RuntimeException {
+    public WrongHitException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.stats.server.exception;
+
+public class WrongParameterException extends RuntimeException {
+    public WrongParameterException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package ru.practicum.stats.server.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Days in [from, before) are archived: every raw hit of that range with an id up to {@code maxHitId} is in the
+ * archive files.
+ */
+public record ArchiveRange(LocalDateTime from, LocalDateTime before, long maxHitId) {
+
+    public boolean contains(LocalDateTime time) {
+        return !time.isBefore(from) && time.isBefore(before);
+    }
+}
@@ -1,6 +1,5 @@
 package ru.practicum.stats.server.model;
 
-import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -8,13 +7,9 @@ import ru.practicum.stats.server.config.ConfigUtil;
 
 import java.time.LocalDateTime;
 
-@Entity
-@Table(name = "hits", schema = "public")
 @Getter
 @Setter
 public class EndpointHit {
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     private String app;
     private String uri;
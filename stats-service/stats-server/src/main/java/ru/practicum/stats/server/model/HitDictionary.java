@@ -0,0 +1,13 @@
+package ru.practicum.stats.server.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum HitDictionary {
+    APP("hit_apps"),
+    URI("hit_uris");
+
+    private final String table;
+}
@@ -0,0 +1,52 @@
+package ru.practicum.stats.server.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+
+public enum PartitionInterval {
+    DAY(ChronoUnit.DAYS, "yyyyMMdd"),
+    MONTH(ChronoUnit.MONTHS, "yyyyMM");
+
+    private static final String PREFIX = "hits_p";
+
+    private final ChronoUnit unit;
+    private final DateTimeFormatter formatter;
+    private final int suffixLength;
+
+    PartitionInterval(ChronoUnit unit, String pattern) {
+        this.unit = unit;
+        this.formatter = DateTimeFormatter.ofPattern(pattern);
+        this.suffixLength = pattern.length();
+    }
+
+    public LocalDateTime floor(LocalDateTime time) {
+        LocalDateTime day = time.truncatedTo(ChronoUnit.DAYS);
+        return this == MONTH ? day.withDayOfMonth(1) : day;
+    }
+
+    public LocalDateTime next(LocalDateTime start) {
+        return start.plus(1, unit);
+    }
+
+    public String partitionName(LocalDateTime start) {
+        return PREFIX + formatter.format(start);
+    }
+
+    public LocalDateTime parseStart(String partitionName) {
+        if (!partitionName.startsWith(PREFIX) || partitionName.length() != PREFIX.length() + suffixLength) {
+            return null;
+        }
+        String suffix = partitionName.substring(PREFIX.length());
+        try {
+            return this == MONTH
+                    ? YearMonth.parse(suffix, formatter).atDay(1).atStartOfDay()
+                    : LocalDate.parse(suffix, formatter).atStartOfDay();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
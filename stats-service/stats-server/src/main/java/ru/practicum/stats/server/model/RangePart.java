@@ -0,0 +1,10 @@
+package ru.practicum.stats.server.model;
+
+import java.time.LocalDateTime;
+
+public record RangePart(RollupGranularity granularity, LocalDateTime from, LocalDateTime to, boolean toInclusive) {
+
+    public boolean isRaw() {
+        return granularity == null;
+    }
+}
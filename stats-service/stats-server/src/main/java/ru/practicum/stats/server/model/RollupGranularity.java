@@ -0,0 +1,27 @@
+package ru.practicum.stats.server.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+@Getter
+@RequiredArgsConstructor
+public enum RollupGranularity {
+    MINUTE(ChronoUnit.MINUTES, "hits_rollup_minute"),
+    HOUR(ChronoUnit.HOURS, "hits_rollup_hour"),
+    DAY(ChronoUnit.DAYS, "hits_rollup_day");
+
+    private final ChronoUnit unit;
+    private final String table;
+
+    public LocalDateTime floor(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    public LocalDateTime ceil(LocalDateTime time) {
+        LocalDateTime floor = floor(time);
+        return floor.equals(time) ? floor : floor.plus(1, unit);
+    }
+}
@@ -0,0 +1,6 @@
+package ru.practicum.stats.server.model;
+
+import java.time.LocalDateTime;
+
+public record SketchKey(RollupGranularity granularity, String app, String uri, LocalDateTime bucket) {
+}
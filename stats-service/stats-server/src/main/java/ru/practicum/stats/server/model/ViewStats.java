@@ -11,4 +11,10 @@ public class ViewStats {
     private String app;
     private String uri;
     private long hits;
+    private Long hitsLower;
+    private Long hitsUpper;
+
+    public ViewStats(String app, String uri, long hits) {
+        this(app, uri, hits, null, null);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package ru.practicum.stats.server.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.server.model.ArchiveRange;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class ArchiveRepository {
+    private static final int ID = 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile ArchiveRange range;
+    private volatile boolean loaded;
+
+    public ArchiveRange getRange() {
+        if (!loaded) {
+            List<ArchiveRange> rows = jdbcTemplate.query("SELECT archived_from, archived_before, max_hit_id " +
+                            "FROM hit_archive WHERE id = ?", (rs, rowNum) -> new ArchiveRange(
+                            rs.getTimestamp("archived_from").toLocalDateTime(),
+                            rs.getTimestamp("archived_before").toLocalDateTime(), rs.getLong("max_hit_id")), ID);
+            range = rows.isEmpty() ? null : rows.getFirst();
+            loaded = true;
+        }
+        return range;
+    }
+
+    public void setRange(ArchiveRange range) {
+        if (jdbcTemplate.update("UPDATE hit_archive SET archived_from = ?, archived_before = ?, max_hit_id = ? " +
+                "WHERE id = ?", Timestamp.valueOf(range.from()), Timestamp.valueOf(range.before()), range.maxHitId(),
+                ID) == 0) {
+            jdbcTemplate.update("INSERT INTO hit_archive (id, archived_from, archived_before, max_hit_id) " +
+                    "VALUES (?, ?, ?, ?)", ID, Timestamp.valueOf(range.from()), Timestamp.valueOf(range.before()),
+                    range.maxHitId());
+        }
+        this.range = range;
+        loaded = true;
+    }
+}
@@ -0,0 +1,49 @@
+package ru.practicum.stats.server.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class CompactionRepository {
+    private static final int ID = 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile LocalDateTime compactedBefore;
+    private volatile boolean loaded;
+
+    public LocalDateTime getCompactedBefore() {
+        if (!loaded) {
+            List<Timestamp> rows = jdbcTemplate.queryForList("SELECT compacted_before FROM hit_compaction " +
+                    "WHERE id = ?", Timestamp.class, ID);
+            compactedBefore = rows.isEmpty() ? null : rows.getFirst().toLocalDateTime();
+            loaded = true;
+        }
+        return compactedBefore;
+    }
+
+    public boolean isCompacted(LocalDateTime time) {
+        LocalDateTime before = getCompactedBefore();
+        return before != null && time.isBefore(before);
+    }
+
+    public void setCompactedBefore(LocalDateTime before) {
+        if (jdbcTemplate.update("UPDATE hit_compaction SET compacted_before = ? WHERE id = ?",
+                Timestamp.valueOf(before), ID) == 0) {
+            jdbcTemplate.update("INSERT INTO hit_compaction (id, compacted_before) VALUES (?, ?)",
+                    ID, Timestamp.valueOf(before));
+        }
+        compactedBefore = before;
+        loaded = true;
+    }
+
+    public LocalDateTime findFirstHit() {
+        Timestamp first = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM hits", Timestamp.class);
+        return first == null ? null : first.toLocalDateTime();
+    }
+}
@@ -0,0 +1,134 @@
+package ru.practicum.stats.server.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.stats.server.config.DatabaseDialect;
+import ru.practicum.stats.server.model.AppUri;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.HitDictionary;
+import ru.practicum.stats.server.model.ViewStats;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Repository
+@RequiredArgsConstructor
+public class CounterRepository {
+    private static final String POSTGRESQL_UPSERT = "INSERT INTO hit_counters " +
+            "(app_id, uri_id, hits, first_seen, last_seen) VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (app_id, uri_id) DO UPDATE SET hits = hit_counters.hits + EXCLUDED.hits, " +
+            "first_seen = LEAST(hit_counters.first_seen, EXCLUDED.first_seen), " +
+            "last_seen = GREATEST(hit_counters.last_seen, EXCLUDED.last_seen)";
+    private static final String MERGE_UPSERT = "MERGE INTO hit_counters AS c " +
+            "USING (VALUES (CAST(? AS INTEGER), CAST(? AS INTEGER), CAST(? AS BIGINT), CAST(? AS TIMESTAMP), " +
+            "CAST(? AS TIMESTAMP))) AS s (app_id, uri_id, hits, first_seen, last_seen) " +
+            "ON c.app_id = s.app_id AND c.uri_id = s.uri_id " +
+            "WHEN MATCHED THEN UPDATE SET hits = c.hits + s.hits, first_seen = LEAST(c.first_seen, s.first_seen), " +
+            "last_seen = GREATEST(c.last_seen, s.last_seen) " +
+            "WHEN NOT MATCHED THEN INSERT (app_id, uri_id, hits, first_seen, last_seen) " +
+            "VALUES (s.app_id, s.uri_id, s.hits, s.first_seen, s.last_seen)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final DictionaryRepository dictionaryRepository;
+    private final DatabaseDialect databaseDialect;
+
+    public void addHits(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        Map<CounterKey, Counter> counters = new TreeMap<>();
+        for (EndpointHit hit : hits) {
+            CounterKey key = new CounterKey(dictionaryRepository.getId(HitDictionary.APP, hit.getApp()),
+                    dictionaryRepository.getId(HitDictionary.URI, hit.getUri()));
+            counters.computeIfAbsent(key, counterKey -> new Counter()).add(hit.getTimestamp());
+        }
+        List<Map.Entry<CounterKey, Counter>> entries = new ArrayList<>(counters.entrySet());
+        jdbcTemplate.batchUpdate(databaseDialect == DatabaseDialect.POSTGRESQL ? POSTGRESQL_UPSERT : MERGE_UPSERT,
+                entries, entries.size(), (ps, entry) -> {
+                    ps.setInt(1, entry.getKey().appId());
+                    ps.setInt(2, entry.getKey().uriId());
+                    ps.setLong(3, entry.getValue().hits);
+                    ps.setTimestamp(4, Timestamp.valueOf(entry.getValue().firstSeen));
+                    ps.setTimestamp(5, Timestamp.valueOf(entry.getValue().lastSeen));
+                });
+    }
+
+    public boolean covers(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        List<Integer> uriIds = uris == null ? null : dictionaryRepository.findIds(HitDictionary.URI, uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return true;
+        }
+        String sql = "SELECT MIN(first_seen) AS first_seen, MAX(last_seen) AS last_seen FROM hit_counters " +
+                (uriIds != null ? "WHERE uri_id IN (:uris)" : "");
+        return Boolean.TRUE.equals(namedParameterJdbcTemplate.queryForObject(sql,
+                new MapSqlParameterSource("uris", uriIds), (rs, rowNum) -> {
+                    Timestamp firstSeen = rs.getTimestamp("first_seen");
+                    Timestamp lastSeen = rs.getTimestamp("last_seen");
+                    return firstSeen == null || !start.isAfter(firstSeen.toLocalDateTime())
+                            && !end.isBefore(lastSeen.toLocalDateTime());
+                }));
+    }
+
+    public List<ViewStats> getViewStats(List<String> uris) {
+        List<Integer> uriIds = uris == null ? null : dictionaryRepository.findIds(HitDictionary.URI, uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return List.of();
+        }
+        String sql = "SELECT app_id, uri_id, hits FROM hit_counters " +
+                (uriIds != null ? "WHERE uri_id IN (:uris) " : "") +
+                "ORDER BY hits DESC";
+        return namedParameterJdbcTemplate.query(sql, new MapSqlParameterSource("uris", uriIds), (rs, rowNum) -> {
+            AppUri appUri = dictionaryRepository.getAppUri(rs.getInt("app_id"), rs.getInt("uri_id"));
+            return new ViewStats(appUri.app(), appUri.uri(), rs.getLong("hits"));
+        });
+    }
+
+    /**
+     * Recomputes the counters from the minute rollups. On PostgreSQL the table is locked against concurrent upserts
+     * first: writes that have not reached the counters yet wait and add their hits to the rebuilt rows, and the
+     * rollups of writes that got there earlier are committed before the rebuild reads them.
+     */
+    @Transactional
+    public void rebuild() {
+        if (databaseDialect == DatabaseDialect.POSTGRESQL) {
+            jdbcTemplate.execute("LOCK TABLE hit_counters IN EXCLUSIVE MODE");
+        }
+        jdbcTemplate.update("DELETE FROM hit_counters");
+        jdbcTemplate.update("INSERT INTO hit_counters (app_id, uri_id, hits, first_seen, last_seen) " +
+                "SELECT app_id, uri_id, SUM(hits), MIN(bucket), MAX(bucket) + INTERVAL '1' MINUTE " +
+                "FROM hits_rollup_minute GROUP BY app_id, uri_id");
+    }
+
+    private record CounterKey(int appId, int uriId) implements Comparable<CounterKey> {
+        @Override
+        public int compareTo(CounterKey other) {
+            int result = Integer.compare(uriId, other.uriId);
+            return result == 0 ? Integer.compare(appId, other.appId) : result;
+        }
+    }
+
+    private static final class Counter {
+        private long hits;
+        private LocalDateTime firstSeen;
+        private LocalDateTime lastSeen;
+
+        private void add(LocalDateTime timestamp) {
+            hits++;
+            if (firstSeen == null || timestamp.isBefore(firstSeen)) {
+                firstSeen = timestamp;
+            }
+            if (lastSeen == null || timestamp.isAfter(lastSeen)) {
+                lastSeen = timestamp;
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package ru.practicum.stats.server.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.stats.server.model.AppUri;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.HitDictionary;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Repository
+public class DictionaryRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final Map<HitDictionary, Map<String, Integer>> ids = new EnumMap<>(HitDictionary.class);
+    private final Map<HitDictionary, Map<Integer, String>> names = new EnumMap<>(HitDictionary.class);
+
+    public DictionaryRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        for (HitDictionary dictionary : HitDictionary.values()) {
+            ids.put(dictionary, new ConcurrentHashMap<>());
+            names.put(dictionary, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Returns the id of the name, inserting it in the current transaction if it is new. Ids inserted in a transaction
+     * are cached once it commits, so call {@link #resolve} before opening a write transaction to keep the inserts out
+     * of it.
+     */
+    public int getId(HitDictionary dictionary, String name) {
+        Integer id = ids.get(dictionary).get(name);
+        if (id != null) {
+            return id;
+        }
+        jdbcTemplate.update("INSERT INTO " + dictionary.getTable() + " (name) VALUES (?) ON CONFLICT DO NOTHING", name);
+        id = jdbcTemplate.queryForObject("SELECT id FROM " + dictionary.getTable() + " WHERE name = ?", Integer.class,
+                name);
+        putCommitted(dictionary, id, name);
+        return id;
+    }
+
+    /**
+     * Inserts the apps and uris of the hits that are not in the dictionaries yet and caches their ids.
+     */
+    public void resolve(List<EndpointHit> hits) {
+        Set<String> apps = new LinkedHashSet<>();
+        Set<String> uris = new LinkedHashSet<>();
+        for (EndpointHit hit : hits) {
+            apps.add(hit.getApp());
+            uris.add(hit.getUri());
+        }
+        resolve(HitDictionary.APP, apps);
+        resolve(HitDictionary.URI, uris);
+    }
+
+    /**
+     * Inserts the missing names in sorted order, so concurrent batches sharing new names wait for each other instead
+     * of deadlocking.
+     */
+    private void resolve(HitDictionary dictionary, Collection<String> values) {
+        List<String> missing = new ArrayList<>();
+        for (String value : values) {
+            if (!ids.get(dictionary).containsKey(value)) {
+                missing.add(value);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        missing.sort(null);
+        jdbcTemplate.batchUpdate("INSERT INTO " + dictionary.getTable() + " (name) VALUES (?) ON CONFLICT DO NOTHING",
+                missing, missing.size(), (ps, value) -> ps.setString(1, value));
+        namedParameterJdbcTemplate.query("SELECT id, name FROM " + dictionary.getTable() + " WHERE name IN (:names)",
+                new MapSqlParameterSource("names", missing),
+                rs -> {
+                    putCommitted(dictionary, rs.getInt("id"), rs.getString("name"));
+                });
+    }
+
+    public List<Integer> findIds(HitDictionary dictionary, Collection<String> values) {
+        List<Integer> found = new ArrayList<>(values.size());
+        List<String> missing = new ArrayList<>();
+        for (String value : values) {
+            Integer id = ids.get(dictionary).get(value);
+            if (id != null) {
+                found.add(id);
+            } else {
+                missing.add(value);
+            }
+        }
+        if (!missing.isEmpty()) {
+            namedParameterJdbcTemplate.query("SELECT id, name FROM " + dictionary.getTable() + " WHERE name IN (:names)",
+                    new MapSqlParameterSource("names", missing), rs -> {
+                        put(dictionary, rs.getInt("id"), rs.getString("name"));
+                        found.add(rs.getInt("id"));
+                    });
+        }
+        return found;
+    }
+
+    public String getName(HitDictionary dictionary, int id) {
+        String name = names.get(dictionary).get(id);
+        if (name == null) {
+            name = jdbcTemplate.queryForObject("SELECT name FROM " + dictionary.getTable() + " WHERE id = ?",
+                    String.class, id);
+            put(dictionary, id, name);
+        }
+        return name;
+    }
+
+    public AppUri getAppUri(int appId, int uriId) {
+        return new AppUri(getName(HitDictionary.APP, appId), getName(HitDictionary.URI, uriId));
+    }
+
+    /**
+     * Caches an id read in the current transaction after it commits, as a rolled back insert leaves no such id.
+     */
+    private void putCommitted(HitDictionary dictionary, int id, String name) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            put(dictionary, id, name);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                put(dictionary, id, name);
+            }
+        });
+    }
+
+    private void put(HitDictionary dictionary, int id, String name) {
+        ids.get(dictionary).put(name, id);
+        names.get(dictionary).put(id, name);
+    }
+}
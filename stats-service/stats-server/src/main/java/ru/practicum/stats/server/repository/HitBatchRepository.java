@@ -0,0 +1,37 @@
+package ru.practicum.stats.server.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.HitDictionary;
+import ru.practicum.stats.server.utils.HitSampling;
+import ru.practicum.stats.server.utils.IpAddresses;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class HitBatchRepository {
+    private static final String INSERT_HIT = "INSERT INTO hits (app_id, uri_id, ip, sample, timestamp) " +
+            "VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DictionaryRepository dictionaryRepository;
+
+    @Value("${stats.hit.batch-size:500}")
+    private int batchSize;
+
+    public void saveAll(List<EndpointHit> hits) {
+        jdbcTemplate.batchUpdate(INSERT_HIT, hits, batchSize, (ps, hit) -> {
+            ps.setInt(1, dictionaryRepository.getId(HitDictionary.APP, hit.getApp()));
+            ps.setInt(2, dictionaryRepository.getId(HitDictionary.URI, hit.getUri()));
+            byte[] ip = IpAddresses.toBytes(hit.getIp());
+            ps.setBytes(3, ip);
+            ps.setShort(4, (short) HitSampling.bucket(ip));
+            ps.setTimestamp(5, Timestamp.valueOf(hit.getTimestamp()));
+        });
+    }
+}
@@ -0,0 +1,143 @@
+package ru.practicum.stats.server.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.server.config.DatabaseDialect;
+import ru.practicum.stats.server.model.AppUri;
+import ru.practicum.stats.server.model.HitDictionary;
+import ru.practicum.stats.server.model.ViewStats;
+import ru.practicum.stats.server.storage.HitVisitor;
+import ru.practicum.stats.server.storage.SampledStats;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+@Repository
+public class HitRepository {
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+    private final DictionaryRepository dictionaryRepository;
+    private final DatabaseDialect databaseDialect;
+
+    public HitRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                         DictionaryRepository dictionaryRepository, DatabaseDialect databaseDialect) {
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.dictionaryRepository = dictionaryRepository;
+        this.databaseDialect = databaseDialect;
+        JdbcTemplate streamingTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streamingTemplate.setFetchSize(STREAM_FETCH_SIZE);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streamingTemplate);
+    }
+
+    public List<ViewStats> getUniqueViewStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        List<Integer> uriIds = uris == null ? null : dictionaryRepository.findIds(HitDictionary.URI, uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return List.of();
+        }
+        return namedParameterJdbcTemplate.query(uniqueQuery(uriIds != null), parameters(start, end, uriIds),
+                (rs, rowNum) -> toViewStats(rs));
+    }
+
+    public void streamUniqueViewStats(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                      Consumer<ViewStats> consumer) {
+        List<Integer> uriIds = uris == null ? null : dictionaryRepository.findIds(HitDictionary.URI, uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return;
+        }
+        streamingJdbcTemplate.query(uniqueQuery(uriIds != null), parameters(start, end, uriIds),
+                (RowCallbackHandler) rs -> consumer.accept(toViewStats(rs)));
+    }
+
+    /**
+     * Returns the largest hit id such that no hit with a smaller one can still be committed. Ids are drawn before
+     * their transactions commit, so on PostgreSQL a SHARE lock on hits first waits for the writers in flight and
+     * holds off new ones until the caller's transaction ends; the caller must hold a transaction.
+     */
+    public long findCommittedMaxId() {
+        if (databaseDialect == DatabaseDialect.POSTGRESQL) {
+            namedParameterJdbcTemplate.getJdbcTemplate().execute("LOCK TABLE hits IN SHARE MODE");
+        }
+        Long id = namedParameterJdbcTemplate.getJdbcTemplate().queryForObject("SELECT MAX(id) FROM hits", Long.class);
+        return id == null ? 0 : id;
+    }
+
+    /**
+     * Streams the raw hits in [from, to) with ids in (afterId, maxId] in timestamp order; the caller must hold a
+     * transaction for the rows to be fetched in chunks.
+     */
+    public void scanHits(LocalDateTime from, LocalDateTime to, long afterId, long maxId, HitVisitor visitor) {
+        streamingJdbcTemplate.query("SELECT app_id, uri_id, ip, timestamp FROM hits " +
+                        "WHERE timestamp >= :start AND timestamp < :end AND id > :afterId AND id <= :maxId " +
+                        "ORDER BY timestamp",
+                parameters(from, to, null).addValue("afterId", afterId).addValue("maxId", maxId),
+                (RowCallbackHandler) rs -> {
+                    AppUri appUri = dictionaryRepository.getAppUri(rs.getInt("app_id"), rs.getInt("uri_id"));
+                    visitor.visit(rs.getTimestamp("timestamp").toLocalDateTime().toInstant(ZoneOffset.UTC)
+                            .toEpochMilli(), appUri.app(), appUri.uri(), rs.getBytes("ip"));
+                });
+    }
+
+    public void forEachDistinctIp(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                  BiConsumer<AppUri, byte[]> consumer) {
+        List<Integer> uriIds = uris == null ? null : dictionaryRepository.findIds(HitDictionary.URI, uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return;
+        }
+        namedParameterJdbcTemplate.query("SELECT DISTINCT app_id, uri_id, ip FROM hits " +
+                        "WHERE timestamp BETWEEN :start AND :end " +
+                        (uriIds != null ? "AND uri_id IN (:uris)" : ""), parameters(start, end, uriIds),
+                (RowCallbackHandler) rs -> consumer.accept(
+                        dictionaryRepository.getAppUri(rs.getInt("app_id"), rs.getInt("uri_id")), rs.getBytes("ip")));
+    }
+
+    /**
+     * Adds the hits in [start, end] of the ips in the sample buckets to the sample; the query reads only those buckets
+     * through the sample index.
+     */
+    public void addSampledHits(LocalDateTime start, LocalDateTime end, List<String> uris, SampledStats sample) {
+        List<Integer> uriIds = uris == null ? null : dictionaryRepository.findIds(HitDictionary.URI, uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return;
+        }
+        namedParameterJdbcTemplate.query("SELECT app_id, uri_id, ip, COUNT(*) AS hits FROM hits " +
+                        "WHERE sample IN (:samples) AND timestamp BETWEEN :start AND :end " +
+                        (uriIds != null ? "AND uri_id IN (:uris) " : "") +
+                        "GROUP BY app_id, uri_id, ip",
+                parameters(start, end, uriIds).addValue("samples",
+                        IntStream.range(0, sample.getBuckets()).boxed().toList()),
+                (RowCallbackHandler) rs -> sample.add(
+                        dictionaryRepository.getAppUri(rs.getInt("app_id"), rs.getInt("uri_id")), rs.getBytes("ip"),
+                        rs.getLong("hits")));
+    }
+
+    private String uniqueQuery(boolean filterUris) {
+        return "SELECT app_id, uri_id, COUNT(DISTINCT ip) AS hits FROM hits " +
+                "WHERE timestamp BETWEEN :start AND :end " +
+                (filterUris ? "AND uri_id IN (:uris) " : "") +
+                "GROUP BY app_id, uri_id ORDER BY hits DESC";
+    }
+
+    private MapSqlParameterSource parameters(LocalDateTime start, LocalDateTime end, List<Integer> uriIds) {
+        return new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end))
+                .addValue("uris", uriIds);
+    }
+
+    private ViewStats toViewStats(ResultSet rs) throws SQLException {
+        AppUri appUri = dictionaryRepository.getAppUri(rs.getInt("app_id"), rs.getInt("uri_id"));
+        return new ViewStats(appUri.app(), appUri.uri(), rs.getLong("hits"));
+    }
+}
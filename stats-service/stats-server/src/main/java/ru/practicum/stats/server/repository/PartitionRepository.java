@@ -0,0 +1,72 @@
+package ru.practicum.stats.server.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.stats.server.config.ConfigUtil;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class PartitionRepository {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(ConfigUtil.DATE);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<String> findHitPartitions() {
+        return jdbcTemplate.queryForList("SELECT child.relname FROM pg_inherits " +
+                "JOIN pg_class parent ON parent.oid = pg_inherits.inhparent " +
+                "JOIN pg_class child ON child.oid = pg_inherits.inhrelid " +
+                "WHERE parent.relname = 'hits'", String.class);
+    }
+
+    public void createHitPartition(String name, LocalDateTime from, LocalDateTime to) {
+        jdbcTemplate.execute(String.format("CREATE TABLE IF NOT EXISTS %s PARTITION OF hits " +
+                "FOR VALUES FROM ('%s') TO ('%s')", name, FORMATTER.format(from), FORMATTER.format(to)));
+    }
+
+    /**
+     * Days that have hits in the default partition, that is hits outside the ranges of the other partitions.
+     */
+    public List<LocalDate> findDefaultHitDays() {
+        return jdbcTemplate.queryForList("SELECT DISTINCT CAST(timestamp AS DATE) FROM hits_default", LocalDate.class);
+    }
+
+    /**
+     * Creates the partition for {@code [from, to)} when the default partition already has hits of that range: they
+     * are moved into the new table before it is attached, as attaching fails while the default partition holds
+     * them. Inserts that would land in the default partition wait until the partition is attached.
+     */
+    @Transactional
+    public void createHitPartitionFromDefault(String name, LocalDateTime from, LocalDateTime to) {
+        jdbcTemplate.execute("LOCK TABLE hits_default IN EXCLUSIVE MODE");
+        jdbcTemplate.execute(String.format("CREATE TABLE %s (LIKE hits INCLUDING DEFAULTS INCLUDING CONSTRAINTS)",
+                name));
+        jdbcTemplate.update(String.format("WITH moved AS (DELETE FROM hits_default WHERE timestamp >= ? " +
+                "AND timestamp < ? RETURNING *) INSERT INTO %s SELECT * FROM moved", name), Timestamp.valueOf(from),
+                Timestamp.valueOf(to));
+        jdbcTemplate.execute(String.format("ALTER TABLE hits ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')",
+                name, FORMATTER.format(from), FORMATTER.format(to)));
+    }
+
+    public void dropHitPartition(String name) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + name);
+    }
+
+    public boolean hasHitsAfter(String partition, long id) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + partition +
+                " WHERE id > ?)", Boolean.class, id));
+    }
+
+    public int deleteHitsBefore(LocalDateTime cutoff, long maxId, int limit) {
+        return jdbcTemplate.update("DELETE FROM hits WHERE id IN " +
+                "(SELECT id FROM hits WHERE timestamp < ? AND id <= ? LIMIT ?)", Timestamp.valueOf(cutoff), maxId,
+                limit);
+    }
+}
@@ -0,0 +1,171 @@
+package ru.practicum.stats.server.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.server.config.DatabaseDialect;
+import ru.practicum.stats.server.model.AppUri;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.HitDictionary;
+import ru.practicum.stats.server.model.RangePart;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.model.ViewStats;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+@Repository
+public class RollupRepository {
+    private static final String POSTGRESQL_UPSERT = "INSERT INTO %1$s (app_id, uri_id, bucket, hits) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (app_id, uri_id, bucket) DO UPDATE SET hits = %1$s.hits + EXCLUDED.hits";
+    private static final String MERGE_UPSERT = "MERGE INTO %1$s AS r " +
+            "USING (VALUES (CAST(? AS INTEGER), CAST(? AS INTEGER), CAST(? AS TIMESTAMP), " +
+            "CAST(? AS BIGINT))) AS s (app_id, uri_id, bucket, hits) " +
+            "ON r.app_id = s.app_id AND r.uri_id = s.uri_id AND r.bucket = s.bucket " +
+            "WHEN MATCHED THEN UPDATE SET hits = r.hits + s.hits " +
+            "WHEN NOT MATCHED THEN INSERT (app_id, uri_id, bucket, hits) " +
+            "VALUES (s.app_id, s.uri_id, s.bucket, s.hits)";
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+    private final DictionaryRepository dictionaryRepository;
+    private final DatabaseDialect databaseDialect;
+
+    public RollupRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                            DictionaryRepository dictionaryRepository, DatabaseDialect databaseDialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.dictionaryRepository = dictionaryRepository;
+        this.databaseDialect = databaseDialect;
+        JdbcTemplate streamingTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streamingTemplate.setFetchSize(STREAM_FETCH_SIZE);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streamingTemplate);
+    }
+
+    public void addHits(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        int[] appIds = new int[hits.size()];
+        int[] uriIds = new int[hits.size()];
+        for (int i = 0; i < hits.size(); i++) {
+            appIds[i] = dictionaryRepository.getId(HitDictionary.APP, hits.get(i).getApp());
+            uriIds[i] = dictionaryRepository.getId(HitDictionary.URI, hits.get(i).getUri());
+        }
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            Map<RollupKey, Long> increments = new TreeMap<>();
+            for (int i = 0; i < hits.size(); i++) {
+                increments.merge(new RollupKey(appIds[i], uriIds[i], granularity.floor(hits.get(i).getTimestamp())),
+                        1L, Long::sum);
+            }
+            increment(granularity, new ArrayList<>(increments.entrySet()));
+        }
+    }
+
+    private void increment(RollupGranularity granularity, List<Map.Entry<RollupKey, Long>> increments) {
+        String sql = String.format(databaseDialect == DatabaseDialect.POSTGRESQL ? POSTGRESQL_UPSERT : MERGE_UPSERT,
+                granularity.getTable());
+        jdbcTemplate.batchUpdate(sql, increments, increments.size(), (ps, increment) -> {
+            ps.setInt(1, increment.getKey().appId());
+            ps.setInt(2, increment.getKey().uriId());
+            ps.setTimestamp(3, Timestamp.valueOf(increment.getKey().bucket()));
+            ps.setLong(4, increment.getValue());
+        });
+    }
+
+    public void deleteBefore(LocalDateTime cutoff) {
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            jdbcTemplate.update("DELETE FROM " + granularity.getTable() + " WHERE bucket < ?", Timestamp.valueOf(cutoff));
+        }
+    }
+
+    public List<ViewStats> getViewStats(RangePart part, List<String> uris) {
+        List<Integer> uriIds = uris == null ? null : dictionaryRepository.findIds(HitDictionary.URI, uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return List.of();
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(part.from()))
+                .addValue("to", Timestamp.valueOf(part.to()))
+                .addValue("uris", uriIds);
+        return namedParameterJdbcTemplate.query(partQuery(part, "from", "to", uriIds != null), parameters,
+                (rs, rowNum) -> toViewStats(rs));
+    }
+
+    public void streamViewStats(List<RangePart> parts, List<String> uris, Consumer<ViewStats> consumer) {
+        List<Integer> uriIds = uris == null ? null : dictionaryRepository.findIds(HitDictionary.URI, uris);
+        if (parts.isEmpty() || uriIds != null && uriIds.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource().addValue("uris", uriIds);
+        StringJoiner union = new StringJoiner(" UNION ALL ");
+        for (int i = 0; i < parts.size(); i++) {
+            RangePart part = parts.get(i);
+            parameters.addValue("from" + i, Timestamp.valueOf(part.from()))
+                    .addValue("to" + i, Timestamp.valueOf(part.to()));
+            union.add(partQuery(part, "from" + i, "to" + i, uriIds != null));
+        }
+        String sql = "SELECT app_id, uri_id, SUM(hits) AS hits FROM (" + union + ") AS parts " +
+                "GROUP BY app_id, uri_id ORDER BY hits DESC";
+        streamingJdbcTemplate.query(sql, parameters, (RowCallbackHandler) rs -> consumer.accept(toViewStats(rs)));
+    }
+
+    public Map<LocalDateTime, Long> getTimeSeries(String uri, RollupGranularity granularity, LocalDateTime from,
+                                                  LocalDateTime to) {
+        List<Integer> uriIds = dictionaryRepository.findIds(HitDictionary.URI, List.of(uri));
+        Map<LocalDateTime, Long> series = new TreeMap<>();
+        if (uriIds.isEmpty()) {
+            return series;
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("uri", uriIds.getFirst())
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        namedParameterJdbcTemplate.query("SELECT bucket, SUM(hits) AS hits FROM " + granularity.getTable() + " " +
+                        "WHERE uri_id = :uri AND bucket >= :from AND bucket <= :to GROUP BY bucket", parameters,
+                (RowCallbackHandler) rs -> series.put(rs.getTimestamp("bucket").toLocalDateTime(),
+                        rs.getLong("hits")));
+        return series;
+    }
+
+    private String partQuery(RangePart part, String from, String to, boolean filterUris) {
+        String sql = part.isRaw()
+                ? "SELECT app_id, uri_id, COUNT(ip) AS hits FROM hits " +
+                "WHERE timestamp >= :" + from + " AND timestamp " + (part.toInclusive() ? "<=" : "<") + " :" + to + " "
+                : "SELECT app_id, uri_id, SUM(hits) AS hits FROM " + part.granularity().getTable() + " " +
+                "WHERE bucket >= :" + from + " AND bucket < :" + to + " ";
+        if (filterUris) {
+            sql += "AND uri_id IN (:uris) ";
+        }
+        return sql + "GROUP BY app_id, uri_id";
+    }
+
+    private ViewStats toViewStats(ResultSet rs) throws SQLException {
+        AppUri appUri = dictionaryRepository.getAppUri(rs.getInt("app_id"), rs.getInt("uri_id"));
+        return new ViewStats(appUri.app(), appUri.uri(), rs.getLong("hits"));
+    }
+
+    private record RollupKey(int appId, int uriId, LocalDateTime bucket) implements Comparable<RollupKey> {
+        @Override
+        public int compareTo(RollupKey other) {
+            int result = Integer.compare(appId, other.appId);
+            if (result == 0) {
+                result = Integer.compare(uriId, other.uriId);
+            }
+            return result == 0 ? bucket.compareTo(other.bucket) : result;
+        }
+    }
+}
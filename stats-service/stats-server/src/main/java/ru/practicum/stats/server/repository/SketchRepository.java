@@ -0,0 +1,158 @@
+package ru.practicum.stats.server.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.server.model.AppUri;
+import ru.practicum.stats.server.model.HitDictionary;
+import ru.practicum.stats.server.model.RangePart;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.model.SketchKey;
+import ru.practicum.stats.server.utils.HyperLogLog;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+@Repository
+@RequiredArgsConstructor
+public class SketchRepository {
+    private static final int FIND_CHUNK_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final DictionaryRepository dictionaryRepository;
+
+    /**
+     * Locks the stored sketches of the keys until the end of the caller's transaction and returns them. Rows are
+     * looked up by granularity and uri, so every query uses the primary key, and locked in primary key order.
+     */
+    public Map<SketchKey, byte[]> lockAll(Set<SketchKey> keys) {
+        Map<SketchLookup, List<Timestamp>> lookups = new TreeMap<>(Comparator.comparing(SketchLookup::granularity)
+                .thenComparingInt(SketchLookup::uriId));
+        for (SketchKey key : keys) {
+            lookups.computeIfAbsent(new SketchLookup(key.granularity(),
+                            dictionaryRepository.getId(HitDictionary.URI, key.uri())), lookup -> new ArrayList<>())
+                    .add(Timestamp.valueOf(key.bucket()));
+        }
+        Map<SketchKey, byte[]> sketches = new HashMap<>();
+        lookups.forEach((lookup, buckets) -> {
+            for (int from = 0; from < buckets.size(); from += FIND_CHUNK_SIZE) {
+                MapSqlParameterSource parameters = new MapSqlParameterSource()
+                        .addValue("granularity", lookup.granularity().name())
+                        .addValue("uri", lookup.uriId())
+                        .addValue("buckets", buckets.subList(from, Math.min(buckets.size(), from + FIND_CHUNK_SIZE)));
+                namedParameterJdbcTemplate.query("SELECT app_id, uri_id, bucket, sketch FROM hits_sketches " +
+                        "WHERE granularity = :granularity AND uri_id = :uri AND bucket IN (:buckets) " +
+                        "ORDER BY bucket, app_id FOR UPDATE", parameters,
+                        rs -> {
+                            AppUri appUri = dictionaryRepository.getAppUri(rs.getInt("app_id"), rs.getInt("uri_id"));
+                            SketchKey key = new SketchKey(lookup.granularity(), appUri.app(), appUri.uri(),
+                                    rs.getTimestamp("bucket").toLocalDateTime());
+                            if (keys.contains(key)) {
+                                sketches.put(key, rs.getBytes("sketch"));
+                            }
+                        });
+            }
+        });
+        return sketches;
+    }
+
+    /**
+     * Stores the sketches of the keys that have no stored sketch yet and leaves the others as they are.
+     */
+    public void insertMissing(Map<SketchKey, byte[]> sketches) {
+        jdbcTemplate.batchUpdate("INSERT INTO hits_sketches (granularity, app_id, uri_id, bucket, sketch) " +
+                        "VALUES (?, ?, ?, ?, ?) ON CONFLICT DO NOTHING", inKeyOrder(sketches), FIND_CHUNK_SIZE,
+                (ps, entry) -> {
+                    ps.setString(1, entry.getKey().granularity().name());
+                    ps.setInt(2, dictionaryRepository.getId(HitDictionary.APP, entry.getKey().app()));
+                    ps.setInt(3, dictionaryRepository.getId(HitDictionary.URI, entry.getKey().uri()));
+                    ps.setTimestamp(4, Timestamp.valueOf(entry.getKey().bucket()));
+                    ps.setBytes(5, entry.getValue());
+                });
+    }
+
+    /**
+     * Replaces the stored sketches of the keys; the caller must hold their locks from {@link #lockAll}.
+     */
+    public void updateAll(Map<SketchKey, byte[]> sketches) {
+        jdbcTemplate.batchUpdate("UPDATE hits_sketches SET sketch = ? " +
+                        "WHERE granularity = ? AND uri_id = ? AND bucket = ? AND app_id = ?", inKeyOrder(sketches),
+                FIND_CHUNK_SIZE, (ps, entry) -> {
+                    ps.setBytes(1, entry.getValue());
+                    ps.setString(2, entry.getKey().granularity().name());
+                    ps.setInt(3, dictionaryRepository.getId(HitDictionary.URI, entry.getKey().uri()));
+                    ps.setTimestamp(4, Timestamp.valueOf(entry.getKey().bucket()));
+                    ps.setInt(5, dictionaryRepository.getId(HitDictionary.APP, entry.getKey().app()));
+                });
+    }
+
+    public void deleteBefore(LocalDateTime cutoff) {
+        jdbcTemplate.update("DELETE FROM hits_sketches WHERE bucket < ?", Timestamp.valueOf(cutoff));
+    }
+
+    public void mergeSketches(Map<AppUri, HyperLogLog> target, RangePart part, Collection<String> uris) {
+        List<Integer> uriIds = uris == null ? null : dictionaryRepository.findIds(HitDictionary.URI, uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return;
+        }
+        String sql = "SELECT app_id, uri_id, sketch FROM hits_sketches " +
+                "WHERE granularity = :granularity AND bucket >= :from AND bucket < :to " +
+                (uriIds != null ? "AND uri_id IN (:uris)" : "");
+        namedParameterJdbcTemplate.query(sql, parameters(part, uriIds)
+                        .addValue("granularity", part.granularity().name()),
+                rs -> {
+                    target.computeIfAbsent(dictionaryRepository.getAppUri(rs.getInt("app_id"), rs.getInt("uri_id")),
+                                    key -> new HyperLogLog())
+                            .merge(HyperLogLog.fromBytes(rs.getBytes("sketch")));
+                });
+    }
+
+    public void offerDistinctIps(Map<AppUri, HyperLogLog> target, RangePart part, Collection<String> uris) {
+        List<Integer> uriIds = uris == null ? null : dictionaryRepository.findIds(HitDictionary.URI, uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return;
+        }
+        String sql = "SELECT DISTINCT app_id, uri_id, ip FROM hits " +
+                "WHERE timestamp >= :from AND timestamp " + (part.toInclusive() ? "<=" : "<") + " :to " +
+                (uriIds != null ? "AND uri_id IN (:uris)" : "");
+        namedParameterJdbcTemplate.query(sql, parameters(part, uriIds),
+                rs -> {
+                    target.computeIfAbsent(dictionaryRepository.getAppUri(rs.getInt("app_id"), rs.getInt("uri_id")),
+                                    key -> new HyperLogLog())
+                            .offer(rs.getBytes("ip"));
+                });
+    }
+
+    /**
+     * Orders the sketches like the primary key, so concurrent writers of the same rows lock them in the same order.
+     */
+    private List<Map.Entry<SketchKey, byte[]>> inKeyOrder(Map<SketchKey, byte[]> sketches) {
+        List<Map.Entry<SketchKey, byte[]>> entries = new ArrayList<>(sketches.entrySet());
+        entries.sort(Comparator.comparing((Map.Entry<SketchKey, byte[]> entry) -> entry.getKey().granularity())
+                .thenComparingInt(entry -> dictionaryRepository.getId(HitDictionary.URI, entry.getKey().uri()))
+                .thenComparing(entry -> entry.getKey().bucket())
+                .thenComparingInt(entry -> dictionaryRepository.getId(HitDictionary.APP, entry.getKey().app())));
+        return entries;
+    }
+
+    private MapSqlParameterSource parameters(RangePart part, List<Integer> uriIds) {
+        return new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(part.from()))
+                .addValue("to", Timestamp.valueOf(part.to()))
+                .addValue("uris", uriIds);
+    }
+
+    private record SketchLookup(RollupGranularity granularity, int uriId) {
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.stats.server.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.server.model.AppUri;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.model.ViewStats;
+import ru.practicum.stats.server.utils.SpaceSaving;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class HeavyHitterTracker implements HitListener {
+    private static final RollupGranularity BUCKET = RollupGranularity.HOUR;
+
+    private final Map<LocalDateTime, SpaceSaving<AppUri>> buckets = new ConcurrentHashMap<>();
+    private final int capacity;
+    private final int retentionHours;
+    private final LocalDateTime trackedSince;
+
+    public HeavyHitterTracker(@Value("${stats.top.capacity:1000}") int capacity,
+                              @Value("${stats.top.retention-hours:48}") int retentionHours) {
+        this.capacity = capacity;
+        this.retentionHours = retentionHours;
+        this.trackedSince = BUCKET.ceil(LocalDateTime.now());
+    }
+
+    @Override
+    public void onHitsSaved(List<EndpointHit> hits) {
+        for (EndpointHit hit : hits) {
+            buckets.computeIfAbsent(BUCKET.floor(hit.getTimestamp()), bucket -> new SpaceSaving<>(capacity))
+                    .offer(new AppUri(hit.getApp(), hit.getUri()), 1);
+        }
+    }
+
+    public Optional<List<ViewStats>> getTop(LocalDateTime start, LocalDateTime end, int n) {
+        if (!isTracked(start, end) || n > capacity) {
+            return Optional.empty();
+        }
+        Map<AppUri, Long> totals = new HashMap<>();
+        buckets.forEach((bucket, summary) -> {
+            if (!bucket.isBefore(start) && !bucket.isAfter(end)) {
+                summary.entries().forEach(entry -> totals.merge(entry.key(), entry.count(), Long::sum));
+            }
+        });
+        List<ViewStats> viewStats = new ArrayList<>(totals.size());
+        totals.forEach((key, hits) -> viewStats.add(new ViewStats(key.app(), key.uri(), hits)));
+        viewStats.sort(Comparator.comparingLong(ViewStats::getHits).reversed());
+        return Optional.of(viewStats.subList(0, Math.min(n, viewStats.size())));
+    }
+
+    @Scheduled(fixedDelayString = "${stats.top.evict-interval-ms:60000}")
+    public void evict() {
+        LocalDateTime cutoff = oldestBucket(LocalDateTime.now());
+        buckets.keySet().removeIf(bucket -> bucket.isBefore(cutoff));
+    }
+
+    private boolean isTracked(LocalDateTime start, LocalDateTime end) {
+        LocalDateTime now = LocalDateTime.now();
+        if (!start.equals(BUCKET.floor(start)) || start.isBefore(trackedSince) || start.isBefore(oldestBucket(now))) {
+            return false;
+        }
+        LocalDateTime endExclusive = end.plusSeconds(1);
+        return endExclusive.equals(BUCKET.floor(endExclusive))
+                || BUCKET.floor(end).equals(BUCKET.floor(now)) && !end.isBefore(now);
+    }
+
+    private LocalDateTime oldestBucket(LocalDateTime now) {
+        return BUCKET.floor(now).minusHours(retentionHours);
+    }
+}
@@ -0,0 +1,109 @@
+package ru.practicum.stats.server.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.server.config.WriteRoutingDataSource;
+import ru.practicum.stats.server.model.ArchiveRange;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.repository.CompactionRepository;
+import ru.practicum.stats.server.storage.HitArchive;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Compacts raw hits older than {@code stats.compaction.age-days}. Rollups already hold their counts, so each run
+ * folds the raw ips of up to {@code max-hours-per-run} whole hours into the hour and day sketches, moves the
+ * compaction watermark past them and deletes the raw rows before it in batches. Queries reaching below the
+ * watermark are answered from rollups and sketches only, unless the {@link HitArchive} is enabled: then the run
+ * stops at the last whole day it has archived, and hits that arrive for archived days are merged into the archive
+ * before they are deleted. With the archive a run only deletes hits up to {@link HitArchive#findLastHitId}, which
+ * were all committed before it exported them.
+ * <p>
+ * Compaction deletes raw hits, so it is off unless {@code stats.compaction.age-days} is set to a positive number of
+ * days, e.g. {@code stats.compaction.age-days=90}; enable {@code stats.archive.enabled} as well to keep exact unique
+ * counts below the watermark.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "stats.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class HitCompactor {
+    private final CompactionRepository compactionRepository;
+    private final HyperLogLogStore hyperLogLogStore;
+    private final HitPartitionManager hitPartitionManager;
+    private final Optional<StatsResultCache> statsResultCache;
+    private final Optional<HitArchive> hitArchive;
+
+    @Value("${stats.compaction.age-days:0}")
+    private int ageDays;
+    @Value("${stats.compaction.max-hours-per-run:168}")
+    private int maxHoursPerRun;
+    @Value("${stats.compaction.delete-batch-size:10000}")
+    private int deleteBatchSize;
+
+    @Scheduled(cron = "${stats.compaction.cron:0 15 * * * *}")
+    public void compact() {
+        WriteRoutingDataSource.write(this::compactHits);
+    }
+
+    private void compactHits() {
+        if (ageDays <= 0) {
+            return;
+        }
+        LocalDateTime target = RollupGranularity.HOUR.floor(LocalDateTime.now().minusDays(ageDays));
+        long maxHitId = hitArchive.map(HitArchive::findLastHitId).orElse(Long.MAX_VALUE);
+        LocalDateTime from = compactionRepository.getCompactedBefore();
+        if (from == null) {
+            LocalDateTime firstHit = compactionRepository.findFirstHit();
+            if (firstHit == null) {
+                return;
+            }
+            from = (hitArchive.isPresent() ? RollupGranularity.DAY : RollupGranularity.HOUR).floor(firstHit);
+        } else if (hitArchive.isPresent() && hitArchive.get().archiveLateHits(maxHitId) > 0) {
+            statsResultCache.ifPresent(StatsResultCache::clear);
+            hitPartitionManager.deleteHitsBefore(from, maxHitId, deleteBatchSize);
+        }
+        if (!from.isBefore(target)) {
+            return;
+        }
+        LocalDateTime to = from.plusHours(maxHoursPerRun).isBefore(target) ? from.plusHours(maxHoursPerRun) : target;
+        if (hitArchive.isPresent()) {
+            to = archive(hitArchive.get(), from, to, maxHitId);
+            if (!from.isBefore(to)) {
+                return;
+            }
+        }
+        hyperLogLogStore.fold(from, to);
+        compactionRepository.setCompactedBefore(to);
+        statsResultCache.ifPresent(StatsResultCache::clear);
+        hitPartitionManager.deleteHitsBefore(to, maxHitId, deleteBatchSize);
+        log.info("Compacted hits before {}", to);
+    }
+
+    /**
+     * Archives the whole days between the end of the archive and {@code to} and returns how far the raw hits may be
+     * compacted. The archive starts at the first whole day after the watermark it was enabled at.
+     */
+    private LocalDateTime archive(HitArchive archive, LocalDateTime from, LocalDateTime to, long maxHitId) {
+        ArchiveRange range = archive.getRange();
+        if (range == null) {
+            LocalDateTime first = RollupGranularity.DAY.ceil(from);
+            range = new ArchiveRange(first, first, maxHitId);
+        }
+        LocalDateTime day = range.before();
+        while (!day.plusDays(1).isAfter(to)) {
+            archive.exportDay(day.toLocalDate(), maxHitId);
+            day = day.plusDays(1);
+            archive.setRange(new ArchiveRange(range.from(), day, maxHitId));
+        }
+        if (!to.isAfter(range.from())) {
+            return to;
+        }
+        return to.isBefore(day) ? to : day;
+    }
+}
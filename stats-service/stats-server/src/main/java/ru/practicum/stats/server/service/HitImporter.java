@@ -0,0 +1,168 @@
+package ru.practicum.stats.server.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.HitBatchResultDto;
+import ru.practicum.stats.dto.HitImportResultDto;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Bulk import of NDJSON hits, one {@link EndpointHitDto} per line, plain or gzip-compressed. Lines are parsed on the
+ * calling thread and saved in batches by {@code stats.import.parallelism} workers; at most that many batches are in
+ * flight, so memory does not depend on the size of the input. A single worker already overlaps parsing with writes;
+ * more only help when batches touch different rollup rows, since a backfill serializes on them. Imported hits are not
+ * charged to app quotas but take write slots like any other write. Malformed lines and invalid hits are counted as
+ * rejected.
+ */
+@Slf4j
+@Component
+public class HitImporter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final StatService statService;
+    private final ObjectReader reader;
+    private final int batchSize;
+    private final int parallelism;
+    private final long progressInterval;
+
+    public HitImporter(StatService statService, ObjectMapper objectMapper,
+                       @Value("${stats.import.batch-size:5000}") int batchSize,
+                       @Value("${stats.import.parallelism:1}") int parallelism,
+                       @Value("${stats.import.progress-interval:100000}") long progressInterval) {
+        this.statService = statService;
+        this.reader = objectMapper.readerFor(EndpointHitDto.class);
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.progressInterval = progressInterval;
+    }
+
+    public HitImportResultDto importHits(InputStream in) throws IOException {
+        Progress progress = new Progress();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        Semaphore inFlight = new Semaphore(parallelism);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(decompress(in),
+                StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            List<EndpointHitDto> batch = new ArrayList<>(batchSize);
+            for (String line = lines.readLine(); line != null && failure.get() == null; line = lines.readLine()) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    batch.add(reader.readValue(line));
+                } catch (JsonProcessingException e) {
+                    log.debug("Skip malformed hit line: {}", e.getOriginalMessage());
+                    progress.add(0, 1);
+                    continue;
+                }
+                if (batch.size() == batchSize) {
+                    submit(executor, inFlight, failure, progress, batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty() && failure.get() == null) {
+                submit(executor, inFlight, failure, progress, batch);
+            }
+        } finally {
+            executor.shutdown();
+            awaitTermination(executor);
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        HitImportResultDto result = progress.toResult();
+        log.info("Imported {} hits, rejected {} in {} ms ({} hits/s)", result.getAccepted(), result.getRejected(),
+                result.getDurationMs(), result.getHitsPerSecond());
+        return result;
+    }
+
+    private void submit(ExecutorService executor, Semaphore inFlight, AtomicReference<RuntimeException> failure,
+                        Progress progress, List<EndpointHitDto> batch) throws InterruptedIOException {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Hit import was interrupted");
+        }
+        executor.execute(() -> {
+            try {
+                HitBatchResultDto saved = statService.saveImportedHits(batch);
+                progress.add(saved.getAccepted(), saved.getRejected());
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private void awaitTermination(ExecutorService executor) throws InterruptedIOException {
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Hit import was interrupted");
+        }
+    }
+
+    private InputStream decompress(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        buffered.mark(2);
+        int magic = buffered.read() | buffered.read() << 8;
+        buffered.reset();
+        return magic == GZIPInputStream.GZIP_MAGIC ? new GZIPInputStream(buffered, BUFFER_SIZE) : buffered;
+    }
+
+    private final class Progress {
+        private final long startedAt = System.nanoTime();
+        private final LongAdder accepted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private long reported;
+
+        private void add(long acceptedHits, long rejectedHits) {
+            accepted.add(acceptedHits);
+            rejected.add(rejectedHits);
+            long total = accepted.sum() + rejected.sum();
+            synchronized (this) {
+                if (total - reported < progressInterval) {
+                    return;
+                }
+                reported = total;
+            }
+            log.info("Import progress: {} hits, rejected {}, {} hits/s", accepted.sum(), rejected.sum(),
+                    perSecond(total, System.nanoTime() - startedAt));
+        }
+
+        private HitImportResultDto toResult() {
+            long elapsed = System.nanoTime() - startedAt;
+            long total = accepted.sum() + rejected.sum();
+            return new HitImportResultDto(accepted.sum(), rejected.sum(), TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    perSecond(total, elapsed));
+        }
+
+        private long perSecond(long hits, long nanos) {
+            return nanos == 0 ? 0 : hits * TimeUnit.SECONDS.toNanos(1) / nanos;
+        }
+    }
+}
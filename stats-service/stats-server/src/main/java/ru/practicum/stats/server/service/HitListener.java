@@ -0,0 +1,9 @@
+package ru.practicum.stats.server.service;
+
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.util.List;
+
+public interface HitListener {
+    void onHitsSaved(List<EndpointHit> hits);
+}
@@ -0,0 +1,148 @@
+package ru.practicum.stats.server.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.server.config.DatabaseDialect;
+import ru.practicum.stats.server.config.WriteRoutingDataSource;
+import ru.practicum.stats.server.model.PartitionInterval;
+import ru.practicum.stats.server.repository.CounterRepository;
+import ru.practicum.stats.server.repository.PartitionRepository;
+import ru.practicum.stats.server.repository.RollupRepository;
+import ru.practicum.stats.server.repository.SketchRepository;
+import ru.practicum.stats.server.storage.HitArchive;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "stats.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class HitPartitionManager {
+    private final PartitionRepository partitionRepository;
+    private final RollupRepository rollupRepository;
+    private final CounterRepository counterRepository;
+    private final SketchRepository sketchRepository;
+    private final DatabaseDialect databaseDialect;
+    private final Optional<StatsResultCache> statsResultCache;
+    private final Optional<HitArchive> hitArchive;
+
+    @Value("${stats.partition.interval:day}")
+    private PartitionInterval interval;
+    @Value("${stats.partition.precreate:7}")
+    private int precreate;
+    @Value("${stats.retention.days:0}")
+    private int retentionDays;
+    @Value("${stats.retention.delete-batch-size:10000}")
+    private int deleteBatchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${stats.partition.maintenance-cron:0 5 0 * * *}")
+    public synchronized void maintain() {
+        WriteRoutingDataSource.write(this::maintainPartitions);
+    }
+
+    private void maintainPartitions() {
+        LocalDateTime now = LocalDateTime.now();
+        if (databaseDialect == DatabaseDialect.POSTGRESQL) {
+            createPartitions(now);
+        }
+        if (retentionDays > 0) {
+            applyRetention(interval.floor(now.minusDays(retentionDays)));
+        }
+    }
+
+    /**
+     * Creates the missing partitions from the retention horizon, or from now when nothing expires, up to
+     * {@code stats.partition.precreate} intervals ahead, and for every older interval that received hits since; hits
+     * that landed in the default partition are moved into the partition of their interval.
+     */
+    private void createPartitions(LocalDateTime now) {
+        Set<String> existing = new HashSet<>(partitionRepository.findHitPartitions());
+        LocalDateTime horizon = retentionDays > 0 ? interval.floor(now.minusDays(retentionDays)) : null;
+        Set<LocalDateTime> starts = new TreeSet<>();
+        LocalDateTime last = interval.floor(now);
+        for (int i = 0; i < precreate; i++) {
+            last = interval.next(last);
+        }
+        for (LocalDateTime from = horizon != null ? horizon : interval.floor(now); !from.isAfter(last);
+             from = interval.next(from)) {
+            starts.add(from);
+        }
+        Set<LocalDateTime> inDefault = new HashSet<>();
+        for (LocalDate day : partitionRepository.findDefaultHitDays()) {
+            LocalDateTime from = interval.floor(day.atStartOfDay());
+            if (horizon == null || !from.isBefore(horizon)) {
+                inDefault.add(from);
+                starts.add(from);
+            }
+        }
+        for (LocalDateTime from : starts) {
+            String name = interval.partitionName(from);
+            LocalDateTime to = interval.next(from);
+            if (existing.contains(name)) {
+                continue;
+            }
+            try {
+                if (inDefault.contains(from)) {
+                    partitionRepository.createHitPartitionFromDefault(name, from, to);
+                    log.info("Created hits partition {} for [{}, {}) from the default partition", name, from, to);
+                } else {
+                    partitionRepository.createHitPartition(name, from, to);
+                    log.info("Created hits partition {} for [{}, {})", name, from, to);
+                }
+            } catch (DataAccessException e) {
+                log.error("Can't create hits partition {}, its hits stay in the default partition: {}", name,
+                        e.getMessage());
+            }
+        }
+    }
+
+    private void applyRetention(LocalDateTime cutoff) {
+        deleteHitsBefore(cutoff, Long.MAX_VALUE, deleteBatchSize);
+        rollupRepository.deleteBefore(cutoff);
+        sketchRepository.deleteBefore(cutoff);
+        hitArchive.ifPresent(archive -> archive.deleteBefore(cutoff));
+        counterRepository.rebuild();
+        statsResultCache.ifPresent(StatsResultCache::clear);
+        log.info("Applied hits retention before {}", cutoff);
+    }
+
+    /**
+     * Deletes the hits before the cutoff with ids up to {@code maxId}; hits saved later are kept.
+     */
+    void deleteHitsBefore(LocalDateTime cutoff, long maxId, int batchSize) {
+        if (databaseDialect == DatabaseDialect.POSTGRESQL) {
+            dropPartitionsBefore(cutoff, maxId, partitionRepository.findHitPartitions());
+        }
+        int deleted;
+        do {
+            deleted = partitionRepository.deleteHitsBefore(cutoff, maxId, batchSize);
+        } while (deleted == batchSize);
+    }
+
+    private void dropPartitionsBefore(LocalDateTime cutoff, long maxId, List<String> partitions) {
+        for (String name : partitions) {
+            for (PartitionInterval candidate : PartitionInterval.values()) {
+                LocalDateTime start = candidate.parseStart(name);
+                if (start != null && !candidate.next(start).isAfter(cutoff)
+                        && (maxId == Long.MAX_VALUE || !partitionRepository.hasHitsAfter(name, maxId))) {
+                    partitionRepository.dropHitPartition(name);
+                    log.info("Dropped hits partition {}", name);
+                }
+            }
+        }
+    }
+}
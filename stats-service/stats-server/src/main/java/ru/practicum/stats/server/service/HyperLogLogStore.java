@@ -0,0 +1,226 @@
+package ru.practicum.stats.server.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.dto.HitHash;
+import ru.practicum.stats.server.config.WriteRoutingDataSource;
+import ru.practicum.stats.server.model.AppUri;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.RangePart;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.model.SketchKey;
+import ru.practicum.stats.server.model.ViewStats;
+import ru.practicum.stats.server.repository.CompactionRepository;
+import ru.practicum.stats.server.repository.SketchRepository;
+import ru.practicum.stats.server.storage.HitArchive;
+import ru.practicum.stats.server.utils.HyperLogLog;
+import ru.practicum.stats.server.utils.IpAddresses;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HyperLogLog sketches of the distinct ips per app, uri and hour or day. Saved hits are offered to pending in-memory
+ * sketches, which are merged into the stored ones every {@code stats.sketch.flush-interval-ms} by a flush that never
+ * runs in a writer's transaction. Once half of {@code stats.sketch.max-pending} sketches are pending the flusher thread
+ * merges them early, and writers that find more than {@code max-pending} wait for it, which bounds memory when hits
+ * spread over many buckets.
+ * <p>
+ * That wait stalls writers: while the database is slow, every write that finds the bound exceeded blocks after its
+ * commit until the running flush ends, which shows up as ingestion latency and, through the admission permits, as 429
+ * responses. The stall is preferred to dropping ips, which would leave unique counts low until compaction rebuilds the
+ * sketches of the hour; raise {@code max-pending}, about 4 KB per sketch, to absorb longer database slowdowns.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HyperLogLogStore {
+    private static final RollupGranularity[] LEVELS = {RollupGranularity.HOUR, RollupGranularity.DAY};
+
+    private final SketchRepository sketchRepository;
+    private final RollupPlanner rollupPlanner;
+    private final CompactionRepository compactionRepository;
+    private final Optional<HitArchive> hitArchive;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<SketchKey, HyperLogLog> pending = new ConcurrentHashMap<>();
+    private final ExecutorService flusher = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "sketch-flusher"));
+    private CompletableFuture<Void> queuedFlush;
+
+    @Value("${stats.sketch.max-pending:20000}")
+    private int maxPending;
+
+    /**
+     * Adds committed hits to the pending sketches, so it must be called after the transaction that saved them.
+     */
+    public void offer(List<EndpointHit> hits) {
+        for (EndpointHit hit : hits) {
+            long hash = HitHash.hash(IpAddresses.toBytes(hit.getIp()));
+            for (RollupGranularity granularity : LEVELS) {
+                SketchKey key = new SketchKey(granularity, hit.getApp(), hit.getUri(),
+                        granularity.floor(hit.getTimestamp()));
+                pending.compute(key, (sketchKey, sketch) -> {
+                    HyperLogLog result = sketch == null ? new HyperLogLog() : sketch;
+                    result.offerHash(hash);
+                    return result;
+                });
+            }
+        }
+        if (pending.size() > maxPending / 2) {
+            CompletableFuture<Void> request = requestFlush();
+            if (pending.size() > maxPending) {
+                request.join();
+            }
+        }
+    }
+
+    public List<ViewStats> getUniqueViewStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        Set<String> uriSet = uris == null ? null : new HashSet<>(uris);
+        Map<AppUri, HyperLogLog> sketches = new HashMap<>();
+        for (RangePart part : rollupPlanner.plan(start, end, LEVELS)) {
+            if (part.isRaw() && hitArchive.isPresent() && compactionRepository.isCompacted(part.from())) {
+                hitArchive.get().scan(part, uriSet, true, (timestamp, app, uri, ip) -> sketches.computeIfAbsent(
+                        new AppUri(app, uri), appUri -> new HyperLogLog()).offer(ip));
+            } else if (part.isRaw()) {
+                sketchRepository.offerDistinctIps(sketches, part, uriSet);
+            } else {
+                sketchRepository.mergeSketches(sketches, part, uriSet);
+                mergePending(sketches, part, uriSet);
+            }
+        }
+        List<ViewStats> viewStats = new ArrayList<>(sketches.size());
+        sketches.forEach((key, sketch) -> viewStats.add(new ViewStats(key.app(), key.uri(), sketch.estimate())));
+        viewStats.sort(Comparator.comparingLong(ViewStats::getHits).reversed());
+        return viewStats;
+    }
+
+    /**
+     * Rebuilds the sketches of every hour in [from, to) from raw hits and merges them into the stored ones, so the
+     * sketches are complete before those raw hits are deleted. Merging is idempotent.
+     */
+    public void fold(LocalDateTime from, LocalDateTime to) {
+        for (LocalDateTime hour = from; hour.isBefore(to); hour = hour.plusHours(1)) {
+            Map<AppUri, HyperLogLog> sketches = new HashMap<>();
+            sketchRepository.offerDistinctIps(sketches, new RangePart(null, hour, hour.plusHours(1), false), null);
+            for (Map.Entry<AppUri, HyperLogLog> entry : sketches.entrySet()) {
+                for (RollupGranularity granularity : LEVELS) {
+                    SketchKey key = new SketchKey(granularity, entry.getKey().app(), entry.getKey().uri(),
+                            granularity.floor(hour));
+                    pending.merge(key, entry.getValue().copy(), (sketch, folded) -> {
+                        sketch.merge(folded);
+                        return sketch;
+                    });
+                }
+            }
+            flush();
+        }
+    }
+
+    /**
+     * Merges the pending sketches into the stored ones in a transaction of its own, so it must not be called within
+     * another transaction.
+     */
+    @Scheduled(fixedDelayString = "${stats.sketch.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        WriteRoutingDataSource.write(this::flushPending);
+    }
+
+    /**
+     * Queues a flush on the flusher thread unless one is queued already and returns the queued one.
+     */
+    private CompletableFuture<Void> requestFlush() {
+        synchronized (flusher) {
+            if (queuedFlush == null) {
+                CompletableFuture<Void> request = new CompletableFuture<>();
+                queuedFlush = request;
+                flusher.execute(() -> {
+                    synchronized (flusher) {
+                        queuedFlush = null;
+                    }
+                    try {
+                        flush();
+                    } catch (RuntimeException e) {
+                        log.error("Failed to flush HyperLogLog sketches, keep them pending", e);
+                    } finally {
+                        request.complete(null);
+                    }
+                });
+            }
+            return queuedFlush;
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        flusher.shutdown();
+        if (!flusher.awaitTermination(1, TimeUnit.MINUTES)) {
+            log.warn("Sketch flusher did not stop in time");
+        }
+        flush();
+    }
+
+    private void flushPending() {
+        Map<SketchKey, HyperLogLog> snapshots = new HashMap<>();
+        for (SketchKey key : pending.keySet()) {
+            pending.computeIfPresent(key, (sketchKey, sketch) -> {
+                snapshots.put(sketchKey, sketch.copy());
+                return sketch;
+            });
+        }
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> merge(snapshots));
+        snapshots.forEach((key, snapshot) -> pending.computeIfPresent(key,
+                (sketchKey, sketch) -> sketch.sameRegisters(snapshot) ? null : sketch));
+        log.debug("Flushed {} HyperLogLog sketches", snapshots.size());
+    }
+
+    /**
+     * Merges the snapshots into the stored sketches under row locks. Missing rows are created from the snapshots
+     * first, so every key has a row to lock; merging a snapshot into itself changes nothing, and a concurrent merge of
+     * the same keys waits for this one instead of overwriting it.
+     */
+    private void merge(Map<SketchKey, HyperLogLog> snapshots) {
+        Map<SketchKey, byte[]> sketches = new HashMap<>();
+        snapshots.forEach((key, snapshot) -> sketches.put(key, snapshot.toBytes()));
+        sketchRepository.insertMissing(sketches);
+        Map<SketchKey, byte[]> storedSketches = sketchRepository.lockAll(snapshots.keySet());
+        Map<SketchKey, byte[]> merged = new HashMap<>();
+        snapshots.forEach((key, snapshot) -> {
+            HyperLogLog sketch = snapshot.copy();
+            byte[] stored = storedSketches.get(key);
+            if (stored != null) {
+                sketch.merge(HyperLogLog.fromBytes(stored));
+            }
+            merged.put(key, sketch.toBytes());
+        });
+        sketchRepository.updateAll(merged);
+    }
+
+    private void mergePending(Map<AppUri, HyperLogLog> sketches, RangePart part, Set<String> uris) {
+        pending.forEach((key, sketch) -> {
+            if (key.granularity() == part.granularity() && !key.bucket().isBefore(part.from())
+                    && key.bucket().isBefore(part.to()) && (uris == null || uris.contains(key.uri()))) {
+                sketches.computeIfAbsent(new AppUri(key.app(), key.uri()), appUri -> new HyperLogLog()).merge(sketch);
+            }
+        });
+    }
+}
@@ -0,0 +1,110 @@
+package ru.practicum.stats.server.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.server.config.WriteRoutingDataSource;
+import ru.practicum.stats.server.exception.TooManyRequestsException;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.utils.TokenBucket;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control for ingestion: per-app token buckets for hits received over HTTP, and a limit on concurrent
+ * writes. Writes run on the write pool of {@link WriteRoutingDataSource}, so the limit bounds how long they queue
+ * for its connections, while the read pool stays free for queries.
+ */
+@Slf4j
+@Component
+public class IngestionAdmission {
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Long> appRates;
+    private final long appRate;
+    private final long appBurst;
+    private final Semaphore writes;
+    private final long writeWaitMs;
+    private final Counter quotaRejected;
+    private final Counter concurrencyRejected;
+
+    public IngestionAdmission(MeterRegistry meterRegistry,
+                              @Value("${stats.admission.app-rate:0}") long appRate,
+                              @Value("${stats.admission.app-burst:0}") long appBurst,
+                              @Value("#{${stats.admission.app-rates:{:}}}") Map<String, Long> appRates,
+                              @Value("${stats.admission.max-concurrent-writes:6}") int maxConcurrentWrites,
+                              @Value("${stats.admission.write-wait-ms:100}") long writeWaitMs) {
+        this.appRate = appRate;
+        this.appBurst = appBurst;
+        this.appRates = appRates;
+        this.writes = new Semaphore(maxConcurrentWrites, true);
+        this.writeWaitMs = writeWaitMs;
+        this.quotaRejected = meterRegistry.counter("stats.admission.rejected", "reason", "quota");
+        this.concurrencyRejected = meterRegistry.counter("stats.admission.rejected", "reason", "concurrency");
+        meterRegistry.gauge("stats.admission.writes.available", writes, Semaphore::availablePermits);
+    }
+
+    /**
+     * Runs the write within the concurrency limit. Hits received over HTTP are also charged to their app quotas
+     * and fail fast with {@link TooManyRequestsException}; other writes wait for a free slot.
+     */
+    public void write(List<EndpointHit> hits, boolean limited, Runnable write) {
+        Map<TokenBucket, Long> consumed = limited ? consume(hits) : Map.of();
+        try {
+            if (!limited) {
+                writes.acquire();
+            } else if (!writes.tryAcquire(writeWaitMs, TimeUnit.MILLISECONDS)) {
+                consumed.forEach(TokenBucket::refund);
+                concurrencyRejected.increment(hits.size());
+                throw new TooManyRequestsException("Too many concurrent hit writes", 1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            consumed.forEach(TokenBucket::refund);
+            throw new TooManyRequestsException("Interrupted while waiting for a hit write slot", 1);
+        }
+        try {
+            WriteRoutingDataSource.write(write);
+        } finally {
+            writes.release();
+        }
+    }
+
+    private Map<TokenBucket, Long> consume(List<EndpointHit> hits) {
+        Map<String, Long> counts = new HashMap<>();
+        for (EndpointHit hit : hits) {
+            counts.merge(hit.getApp(), 1L, Long::sum);
+        }
+        Map<TokenBucket, Long> consumed = new HashMap<>();
+        for (Map.Entry<String, Long> count : counts.entrySet()) {
+            TokenBucket bucket = bucket(count.getKey());
+            if (bucket == null) {
+                continue;
+            }
+            long waitNanos = bucket.tryConsume(count.getValue());
+            if (waitNanos > 0) {
+                consumed.forEach(TokenBucket::refund);
+                quotaRejected.increment(hits.size());
+                log.debug("Reject {} hits of app {}: quota exceeded", count.getValue(), count.getKey());
+                throw new TooManyRequestsException("Hit quota exceeded for app " + count.getKey(),
+                        Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+            }
+            consumed.put(bucket, count.getValue());
+        }
+        return consumed;
+    }
+
+    private TokenBucket bucket(String app) {
+        long rate = appRates.getOrDefault(app, appRate);
+        if (rate <= 0) {
+            return null;
+        }
+        return buckets.computeIfAbsent(app, key -> new TokenBucket(rate, Math.max(rate, appBurst)));
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practicum.stats.server.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.server.model.RangePart;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.repository.CompactionRepository;
+import ru.practicum.stats.server.storage.HitArchive;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Component
+@RequiredArgsConstructor
+public class RollupPlanner {
+    private final CompactionRepository compactionRepository;
+    private final Optional<HitArchive> hitArchive;
+
+    public List<RangePart> plan(LocalDateTime start, LocalDateTime end) {
+        return plan(start, end, RollupGranularity.values());
+    }
+
+    /**
+     * Raw hits before the compaction watermark are gone unless they are archived, so in that range the edges are
+     * widened to whole buckets of the finest level.
+     */
+    public List<RangePart> plan(LocalDateTime start, LocalDateTime end, RollupGranularity... levels) {
+        List<RangePart> parts = new ArrayList<>();
+        RollupGranularity finest = levels[0];
+        LocalDateTime from = isRawMissing(start) ? finest.floor(start) : start;
+        if (isRawMissing(end)) {
+            cover(parts, levels, from, finest.floor(end).plus(1, finest.getUnit()), false, levels.length - 1);
+        } else {
+            cover(parts, levels, from, end, true, levels.length - 1);
+        }
+        return parts;
+    }
+
+    private boolean isRawMissing(LocalDateTime time) {
+        return compactionRepository.isCompacted(time) && hitArchive.map(archive -> !archive.covers(time)).orElse(true);
+    }
+
+    private void cover(List<RangePart> parts, RollupGranularity[] levels, LocalDateTime from, LocalDateTime to,
+                       boolean toInclusive, int level) {
+        if (level < 0) {
+            parts.add(new RangePart(null, from, to, toInclusive));
+            return;
+        }
+        RollupGranularity granularity = levels[level];
+        LocalDateTime first = granularity.ceil(from);
+        LocalDateTime last = granularity.floor(to);
+        if (!first.isBefore(last)) {
+            cover(parts, levels, from, to, toInclusive, level - 1);
+            return;
+        }
+        if (from.isBefore(first)) {
+            cover(parts, levels, from, first, false, level - 1);
+        }
+        parts.add(new RangePart(granularity, first, last, false));
+        if (last.isBefore(to) || toInclusive) {
+            cover(parts, levels, last, to, toInclusive, level - 1);
+        }
+    }
+}
@@ -1,13 +1,38 @@
 package ru.practicum.stats.server.service;
 
 import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.HitBatchResultDto;
+import ru.practicum.stats.dto.TimeSeriesPointDto;
 import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.model.EndpointHit;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatService {
     void saveHit(EndpointHitDto endpointHitDto);
 
-    List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique);
+    HitBatchResultDto saveHits(List<EndpointHitDto> endpointHitDtos);
+
+    HitBatchResultDto saveImportedHits(List<EndpointHitDto> endpointHitDtos);
+
+    /**
+     * Saves the hits the storage accepts and returns the number of rejected ones.
+     */
+    int saveDecodedHits(List<EndpointHit> hits);
+
+    List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                                Boolean approx, Double sample);
+
+    List<ViewStatsDto> getTopStats(LocalDateTime start, LocalDateTime end, int n, Boolean unique, Boolean exact);
+
+    List<TimeSeriesPointDto> getTimeSeries(String uri, String step, LocalDateTime start, LocalDateTime end);
+
+    void checkDateTime(LocalDateTime start, LocalDateTime end);
+
+    void checkSample(Double sample);
+
+    void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique, Boolean approx,
+                     Double sample, Consumer<ViewStatsDto> consumer);
 }
\ No newline at end of file
@@ -1,55 +1,256 @@
 package ru.practicum.stats.server.service;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.HitBatchResultDto;
+import ru.practicum.stats.dto.TimeSeriesPointDto;
 import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.exception.WrongHitException;
+import ru.practicum.stats.server.exception.WrongParameterException;
 import ru.practicum.stats.server.exception.WrongTimeException;
 import ru.practicum.stats.server.mapper.EndpointHitMapper;
 import ru.practicum.stats.server.mapper.ViewStatsMapper;
+import ru.practicum.stats.server.config.ConfigUtil;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.RollupGranularity;
 import ru.practicum.stats.server.model.ViewStats;
-import ru.practicum.stats.server.repository.StatServerRepository;
+import ru.practicum.stats.server.storage.HitStorage;
+import ru.practicum.stats.server.utils.HitSampling;
 
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
 
 @Slf4j
-@RequiredArgsConstructor
 @Service
 public class StatServiceImpl implements StatService {
-    private final StatServerRepository statServerRepository;
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(ConfigUtil.DATE);
+
+    private final HitStorage hitStorage;
+    private final Optional<WriteBehindBuffer> writeBehindBuffer;
+    private final HeavyHitterTracker heavyHitterTracker;
+    private final Optional<StatsResultCache> statsResultCache;
+    private final List<HitListener> hitListeners;
     private final EndpointHitMapper endpointHitMapper;
     private final ViewStatsMapper viewStatsMapper;
+    private final TimeSeriesBuffer timeSeriesBuffer;
+    private final IngestionAdmission ingestionAdmission;
+    private final int maxTimeSeriesPoints;
+
+    public StatServiceImpl(HitStorage hitStorage, Optional<WriteBehindBuffer> writeBehindBuffer,
+                           HeavyHitterTracker heavyHitterTracker, Optional<StatsResultCache> statsResultCache,
+                           List<HitListener> hitListeners, EndpointHitMapper endpointHitMapper,
+                           ViewStatsMapper viewStatsMapper, TimeSeriesBuffer timeSeriesBuffer,
+                           IngestionAdmission ingestionAdmission,
+                           @Value("${stats.timeseries.max-points:10000}") int maxTimeSeriesPoints) {
+        this.hitStorage = hitStorage;
+        this.writeBehindBuffer = writeBehindBuffer;
+        this.heavyHitterTracker = heavyHitterTracker;
+        this.statsResultCache = statsResultCache;
+        this.hitListeners = hitListeners;
+        this.endpointHitMapper = endpointHitMapper;
+        this.viewStatsMapper = viewStatsMapper;
+        this.timeSeriesBuffer = timeSeriesBuffer;
+        this.ingestionAdmission = ingestionAdmission;
+        this.maxTimeSeriesPoints = maxTimeSeriesPoints;
+    }
 
     @Override
     public void saveHit(EndpointHitDto endpointHitDto) {
         log.debug("Save hit by app: {}", endpointHitDto.getApp());
-        statServerRepository.save(endpointHitMapper.toEntity(endpointHitDto));
+        EndpointHit hit = toValidEntity(endpointHitDto);
+        if (hit == null) {
+            throw new WrongHitException("Hit must contain app, uri, ip and timestamp within the storage limits");
+        }
+        write(List.of(hit), true);
+    }
+
+    @Override
+    public HitBatchResultDto saveHits(List<EndpointHitDto> endpointHitDtos) {
+        return saveHits(endpointHitDtos, true);
     }
 
     @Override
-    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+    public HitBatchResultDto saveImportedHits(List<EndpointHitDto> endpointHitDtos) {
+        return saveHits(endpointHitDtos, false);
+    }
+
+    private HitBatchResultDto saveHits(List<EndpointHitDto> endpointHitDtos, boolean limited) {
+        List<EndpointHit> hits = new ArrayList<>(endpointHitDtos.size());
+        for (EndpointHitDto endpointHitDto : endpointHitDtos) {
+            EndpointHit hit = toValidEntity(endpointHitDto);
+            if (hit != null) {
+                hits.add(hit);
+            }
+        }
+        write(hits, limited);
+        int rejected = endpointHitDtos.size() - hits.size();
+        log.debug("Save batch of hits: accepted {}, rejected {}", hits.size(), rejected);
+        return new HitBatchResultDto(hits.size(), rejected);
+    }
+
+    @Override
+    public int saveDecodedHits(List<EndpointHit> hits) {
+        List<EndpointHit> accepted = hits.stream().filter(hitStorage::accepts).toList();
+        log.debug("Save batch of {} decoded hits, rejected {}", accepted.size(), hits.size() - accepted.size());
+        write(accepted, false);
+        return hits.size() - accepted.size();
+    }
+
+    @Override
+    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                                       Boolean approx, Double sample) {
         checkDateTime(start, end);
+        if (isSampled(sample)) {
+            log.debug("Received stats sampled at {}.", sample);
+            return viewStatsMapper.toDtoList(hitStorage.getSampledViewStats(start, end, uris, unique,
+                    HitSampling.buckets(sample)));
+        }
         log.debug("Received stats.");
-        List<ViewStats> viewStats;
-        List<ViewStatsDto> response;
-        if (unique) {
-            viewStats = uris == null
-                    ? statServerRepository.getUniqueViewStatsByStartAndEndTime(start, end)
-                    : statServerRepository.getUniqueUrisViewStatsByStartAndEndTime(start, end, uris);
-        } else {
-            viewStats = uris == null ? statServerRepository.getViewStatsByStartAndEndTime(start, end)
-                    : statServerRepository.getUrisViewStatsByStartAndEndTime(start, end, uris);
+        List<ViewStats> viewStats = statsResultCache
+                .map(cache -> cache.getViewStats(start, end, uris, unique, approx))
+                .orElseGet(() -> hitStorage.getViewStats(start, end, uris, unique, approx));
+        return viewStatsMapper.toDtoList(viewStats);
+    }
+
+    @Override
+    public List<ViewStatsDto> getTopStats(LocalDateTime start, LocalDateTime end, int n, Boolean unique,
+                                          Boolean exact) {
+        checkDateTime(start, end);
+        if (n <= 0) {
+            throw new WrongParameterException("Parameter n must be positive");
         }
+        if (!unique && !exact) {
+            Optional<List<ViewStats>> top = heavyHitterTracker.getTop(start, end, n);
+            if (top.isPresent()) {
+                log.debug("Received top {} stats from heavy hitters.", n);
+                return viewStatsMapper.toDtoList(top.get());
+            }
+        }
+        log.debug("Received top {} stats by exact aggregation.", n);
+        List<ViewStats> viewStats = hitStorage.getViewStats(start, end, null, unique, false);
+        return viewStatsMapper.toDtoList(viewStats.subList(0, Math.min(n, viewStats.size())));
+    }
 
-        response = viewStatsMapper.toDtoList(viewStats);
-        return response;
+    @Override
+    public List<TimeSeriesPointDto> getTimeSeries(String uri, String step, LocalDateTime start, LocalDateTime end) {
+        checkDateTime(start, end);
+        RollupGranularity granularity = toGranularity(step);
+        LocalDateTime first = granularity.floor(start);
+        LocalDateTime last = granularity.floor(end);
+        if (granularity.getUnit().between(first, last) >= maxTimeSeriesPoints) {
+            throw new WrongParameterException("Time series must not exceed " + maxTimeSeriesPoints + " points");
+        }
+        List<LocalDateTime> buckets = new ArrayList<>();
+        Map<LocalDateTime, Long> hits = new HashMap<>();
+        LocalDateTime missingFrom = null;
+        int storageQueries = 0;
+        for (LocalDateTime bucket = first; !bucket.isAfter(last); bucket = bucket.plus(1, granularity.getUnit())) {
+            OptionalLong cached = timeSeriesBuffer.get(uri, granularity, bucket);
+            if (cached.isPresent()) {
+                hits.put(bucket, cached.getAsLong());
+                if (missingFrom != null) {
+                    hits.putAll(hitStorage.getTimeSeries(uri, granularity, missingFrom, buckets.getLast()));
+                    storageQueries++;
+                    missingFrom = null;
+                }
+            } else if (missingFrom == null) {
+                missingFrom = bucket;
+            }
+            buckets.add(bucket);
+        }
+        if (missingFrom != null) {
+            hits.putAll(hitStorage.getTimeSeries(uri, granularity, missingFrom, last));
+            storageQueries++;
+        }
+        log.debug("Received {} time series points with {} storage queries.", buckets.size(), storageQueries);
+        List<TimeSeriesPointDto> points = new ArrayList<>(buckets.size());
+        for (LocalDateTime bucket : buckets) {
+            points.add(new TimeSeriesPointDto(bucket.format(FORMATTER), hits.getOrDefault(bucket, 0L)));
+        }
+        return points;
+    }
+
+    @Override
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique, Boolean approx,
+                            Double sample, Consumer<ViewStatsDto> consumer) {
+        checkDateTime(start, end);
+        if (isSampled(sample)) {
+            log.debug("Stream stats sampled at {}.", sample);
+            hitStorage.getSampledViewStats(start, end, uris, unique, HitSampling.buckets(sample))
+                    .forEach(viewStats -> consumer.accept(viewStatsMapper.toDto(viewStats)));
+            return;
+        }
+        log.debug("Stream stats.");
+        hitStorage.streamViewStats(start, end, uris, unique, approx,
+                viewStats -> consumer.accept(viewStatsMapper.toDto(viewStats)));
     }
 
-    private void checkDateTime(LocalDateTime start, LocalDateTime end) {
+    private void write(List<EndpointHit> hits, boolean limited) {
+        ingestionAdmission.write(hits, limited, () -> writeBehindBuffer.ifPresentOrElse(buffer -> buffer.enqueue(hits),
+                () -> {
+                    hitStorage.save(hits);
+                    hitListeners.forEach(listener -> listener.onHitsSaved(hits));
+                }));
+    }
+
+    @Override
+    public void checkDateTime(LocalDateTime start, LocalDateTime end) {
         if (start.isAfter(end)) {
             throw new WrongTimeException("Wrong date and time");
         }
     }
+
+    @Override
+    public void checkSample(Double sample) {
+        if (sample != null && !(sample > 0 && sample <= 1)) {
+            throw new WrongParameterException("Parameter sample must be greater than 0 and at most 1");
+        }
+    }
+
+    private boolean isSampled(Double sample) {
+        checkSample(sample);
+        return sample != null && sample < 1;
+    }
+
+    private RollupGranularity toGranularity(String step) {
+        try {
+            return RollupGranularity.valueOf(step.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new WrongParameterException("Parameter step must be one of minute, hour, day");
+        }
+    }
+
+    private EndpointHit toValidEntity(EndpointHitDto endpointHitDto) {
+        if (endpointHitDto == null || isBlank(endpointHitDto.getApp()) || isBlank(endpointHitDto.getUri())
+                || isBlank(endpointHitDto.getIp()) || endpointHitDto.getTimestamp() == null) {
+            return null;
+        }
+        EndpointHit hit;
+        try {
+            hit = endpointHitMapper.toEntity(endpointHitDto);
+        } catch (DateTimeParseException e) {
+            log.debug("Reject hit with wrong timestamp: {}", endpointHitDto.getTimestamp());
+            return null;
+        }
+        if (!hitStorage.accepts(hit)) {
+            log.debug("Reject hit the storage can't store: {}", endpointHitDto.getUri());
+            return null;
+        }
+        return hit;
+    }
+
+    private boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
 }
\ No newline at end of file
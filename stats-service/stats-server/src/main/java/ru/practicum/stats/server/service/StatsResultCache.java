@@ -0,0 +1,172 @@
+package ru.practicum.stats.server.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.server.model.AppUri;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.model.ViewStats;
+import ru.practicum.stats.server.storage.HitStorage;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of /stats results. Only closed minutes are cached: a non-unique query is split into a cached
+ * part that ends before the current minute and a live tail, while unique queries are cached only when the whole
+ * range is closed. Hits saved into a closed minute invalidate the entries they overlap.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class StatsResultCache implements HitListener {
+    private static final RollupGranularity BUCKET = RollupGranularity.MINUTE;
+
+    private final HitStorage hitStorage;
+    private final Map<CacheKey, List<ViewStats>> entries;
+    private final AtomicLong generation = new AtomicLong();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter evictionCounter;
+    private final Counter invalidationCounter;
+
+    public StatsResultCache(HitStorage hitStorage, MeterRegistry meterRegistry,
+                            @Value("${stats.cache.max-entries:1000}") int maxEntries) {
+        this.hitStorage = hitStorage;
+        this.hitCounter = meterRegistry.counter("stats.cache.hits");
+        this.missCounter = meterRegistry.counter("stats.cache.misses");
+        this.evictionCounter = meterRegistry.counter("stats.cache.evictions");
+        this.invalidationCounter = meterRegistry.counter("stats.cache.invalidations");
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, List<ViewStats>> eldest) {
+                if (size() > maxEntries) {
+                    evictionCounter.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        meterRegistry.gaugeMapSize("stats.cache.size", Tags.empty(), entries);
+    }
+
+    public List<ViewStats> getViewStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                        boolean approx) {
+        LocalDateTime open = BUCKET.floor(LocalDateTime.now());
+        List<String> normalizedUris = uris == null ? null : uris.stream().distinct().sorted().toList();
+        if (unique) {
+            if (!end.isBefore(open)) {
+                return hitStorage.getViewStats(start, end, normalizedUris, true, approx);
+            }
+            return get(new CacheKey(start, end, normalizedUris, true, approx),
+                    () -> hitStorage.getViewStats(start, end, normalizedUris, true, approx));
+        }
+        LocalDateTime boundary = BUCKET.floor(end.plusSeconds(1));
+        if (boundary.isAfter(open)) {
+            boundary = open;
+        }
+        if (!boundary.isAfter(start)) {
+            return hitStorage.getViewStats(start, end, normalizedUris, false, false);
+        }
+        LocalDateTime closedEnd = boundary.minusSeconds(1);
+        List<ViewStats> closed = get(new CacheKey(start, closedEnd, normalizedUris, false, false),
+                () -> hitStorage.getViewStats(start, closedEnd, normalizedUris, false, false));
+        if (boundary.isAfter(end)) {
+            return closed;
+        }
+        return merge(closed, hitStorage.getViewStats(boundary, end, normalizedUris, false, false));
+    }
+
+    @Override
+    public void onHitsSaved(List<EndpointHit> hits) {
+        LocalDateTime open = BUCKET.floor(LocalDateTime.now());
+        List<EndpointHit> late = new ArrayList<>();
+        for (EndpointHit hit : hits) {
+            if (hit.getTimestamp().isBefore(open)) {
+                late.add(hit);
+            }
+        }
+        if (late.isEmpty()) {
+            return;
+        }
+        generation.incrementAndGet();
+        int invalidated = 0;
+        synchronized (this) {
+            Iterator<CacheKey> iterator = entries.keySet().iterator();
+            while (iterator.hasNext()) {
+                CacheKey key = iterator.next();
+                if (late.stream().anyMatch(key::covers)) {
+                    iterator.remove();
+                    invalidated++;
+                }
+            }
+        }
+        invalidationCounter.increment(invalidated);
+        log.debug("Saved {} hits into closed minutes, invalidated {} cached stats", late.size(), invalidated);
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        synchronized (this) {
+            invalidationCounter.increment(entries.size());
+            entries.clear();
+        }
+    }
+
+    private List<ViewStats> get(CacheKey key, Supplier<List<ViewStats>> loader) {
+        synchronized (this) {
+            List<ViewStats> cached = entries.get(key);
+            if (cached != null) {
+                hitCounter.increment();
+                return cached;
+            }
+        }
+        missCounter.increment();
+        long observed = generation.get();
+        List<ViewStats> loaded = Collections.unmodifiableList(loader.get());
+        synchronized (this) {
+            if (generation.get() == observed) {
+                entries.put(key, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    private List<ViewStats> merge(List<ViewStats> closed, List<ViewStats> tail) {
+        Map<AppUri, ViewStats> totals = new HashMap<>();
+        for (List<ViewStats> part : List.of(closed, tail)) {
+            for (ViewStats stats : part) {
+                totals.merge(new AppUri(stats.getApp(), stats.getUri()),
+                        new ViewStats(stats.getApp(), stats.getUri(), stats.getHits()), (total, added) -> {
+                            total.setHits(total.getHits() + added.getHits());
+                            return total;
+                        });
+            }
+        }
+        List<ViewStats> viewStats = new ArrayList<>(totals.values());
+        viewStats.sort(Comparator.comparingLong(ViewStats::getHits).reversed());
+        return viewStats;
+    }
+
+    private record CacheKey(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                            boolean approx) {
+        private boolean covers(EndpointHit hit) {
+            return !hit.getTimestamp().isBefore(start) && !hit.getTimestamp().isAfter(end)
+                    && (uris == null || uris.contains(hit.getUri()));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package ru.practicum.stats.server.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.RollupGranularity;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Per-uri hit counts for the most recent minutes, hours and days, kept in fixed-size rings of buckets. A bucket
+ * is answered from memory only if the server has been running for all of it and it has not yet been overwritten.
+ */
+@Component
+public class TimeSeriesBuffer implements HitListener {
+    private final Map<RollupGranularity, Ring> rings = new EnumMap<>(RollupGranularity.class);
+
+    public TimeSeriesBuffer(@Value("${stats.timeseries.minute-slots:1440}") int minuteSlots,
+                            @Value("${stats.timeseries.hour-slots:168}") int hourSlots,
+                            @Value("${stats.timeseries.day-slots:90}") int daySlots) {
+        LocalDateTime now = LocalDateTime.now();
+        rings.put(RollupGranularity.MINUTE, new Ring(RollupGranularity.MINUTE, minuteSlots, now));
+        rings.put(RollupGranularity.HOUR, new Ring(RollupGranularity.HOUR, hourSlots, now));
+        rings.put(RollupGranularity.DAY, new Ring(RollupGranularity.DAY, daySlots, now));
+    }
+
+    @Override
+    public void onHitsSaved(List<EndpointHit> hits) {
+        LocalDateTime now = LocalDateTime.now();
+        for (Ring ring : rings.values()) {
+            Map<LocalDateTime, Map<String, Long>> increments = new HashMap<>();
+            for (EndpointHit hit : hits) {
+                increments.computeIfAbsent(ring.granularity.floor(hit.getTimestamp()), bucket -> new HashMap<>())
+                        .merge(hit.getUri(), 1L, Long::sum);
+            }
+            increments.forEach((bucket, counts) -> ring.add(bucket, counts, now));
+        }
+    }
+
+    public OptionalLong get(String uri, RollupGranularity granularity, LocalDateTime bucket) {
+        return rings.get(granularity).get(uri, bucket, LocalDateTime.now());
+    }
+
+    private static final class Ring {
+        private final RollupGranularity granularity;
+        private final LocalDateTime trackedSince;
+        private final Slot[] slots;
+
+        private Ring(RollupGranularity granularity, int size, LocalDateTime startedAt) {
+            this.granularity = granularity;
+            this.trackedSince = granularity.ceil(startedAt);
+            this.slots = new Slot[size];
+            for (int i = 0; i < size; i++) {
+                slots[i] = new Slot();
+            }
+        }
+
+        private void add(LocalDateTime bucket, Map<String, Long> counts, LocalDateTime now) {
+            if (!inWindow(bucket, now)) {
+                return;
+            }
+            Slot slot = slot(bucket);
+            synchronized (slot) {
+                if (!bucket.equals(slot.bucket)) {
+                    if (slot.bucket != null && slot.bucket.isAfter(bucket)) {
+                        return;
+                    }
+                    slot.bucket = bucket;
+                    slot.counts.clear();
+                }
+                counts.forEach((uri, hits) -> slot.counts.merge(uri, hits, Long::sum));
+            }
+        }
+
+        private OptionalLong get(String uri, LocalDateTime bucket, LocalDateTime now) {
+            if (bucket.isBefore(trackedSince) || !inWindow(bucket, now)) {
+                return OptionalLong.empty();
+            }
+            Slot slot = slot(bucket);
+            synchronized (slot) {
+                return OptionalLong.of(bucket.equals(slot.bucket) ? slot.counts.getOrDefault(uri, 0L) : 0L);
+            }
+        }
+
+        private boolean inWindow(LocalDateTime bucket, LocalDateTime now) {
+            LocalDateTime newest = granularity.floor(now);
+            return !bucket.isAfter(newest) && bucket.isAfter(newest.minus(slots.length, granularity.getUnit()));
+        }
+
+        private Slot slot(LocalDateTime bucket) {
+            long index = bucket.toEpochSecond(ZoneOffset.UTC) / granularity.getUnit().getDuration().getSeconds();
+            return slots[(int) Math.floorMod(index, (long) slots.length)];
+        }
+    }
+
+    private static final class Slot {
+        private final Map<String, Long> counts = new HashMap<>();
+        private LocalDateTime bucket;
+    }
+}
@@ -0,0 +1,218 @@
+package ru.practicum.stats.server.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import ru.practicum.stats.server.config.WriteRoutingDataSource;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.storage.HitStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.ingestion.mode", havingValue = "write-behind")
+public class WriteBehindBuffer implements SmartLifecycle {
+    private final HitStorage hitStorage;
+    private final List<HitListener> hitListeners;
+    private final BlockingQueue<EndpointHit> queue;
+    private final int flushSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final long drainTimeoutMs;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+    private final long maxRetryBackoffMs;
+    private final Timer commitTimer;
+    private final Counter overflowCounter;
+    private final Counter failedCounter;
+    private final Counter retryCounter;
+    private volatile boolean running;
+    private Thread writer;
+
+    public WriteBehindBuffer(HitStorage hitStorage, List<HitListener> hitListeners, MeterRegistry meterRegistry,
+                             @Value("${stats.ingestion.capacity:10000}") int capacity,
+                             @Value("${stats.ingestion.flush-size:500}") int flushSize,
+                             @Value("${stats.ingestion.flush-interval-ms:200}") long flushIntervalMs,
+                             @Value("${stats.ingestion.offer-timeout-ms:50}") long offerTimeoutMs,
+                             @Value("${stats.ingestion.drain-timeout-ms:30000}") long drainTimeoutMs,
+                             @Value("${stats.ingestion.max-retries:5}") int maxRetries,
+                             @Value("${stats.ingestion.retry-backoff-ms:100}") long retryBackoffMs,
+                             @Value("${stats.ingestion.max-retry-backoff-ms:5000}") long maxRetryBackoffMs) {
+        this.hitStorage = hitStorage;
+        this.hitListeners = hitListeners;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.flushSize = flushSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.drainTimeoutMs = drainTimeoutMs;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMs = retryBackoffMs;
+        this.maxRetryBackoffMs = maxRetryBackoffMs;
+        meterRegistry.gauge("stats.ingestion.queue.depth", queue, BlockingQueue::size);
+        this.commitTimer = meterRegistry.timer("stats.ingestion.commit.latency");
+        this.overflowCounter = meterRegistry.counter("stats.ingestion.overflow");
+        this.failedCounter = meterRegistry.counter("stats.ingestion.failed");
+        this.retryCounter = meterRegistry.counter("stats.ingestion.retries");
+    }
+
+    /**
+     * Queues the hits; once the queue stays full for {@code stats.ingestion.offer-timeout-ms}, the rest of the batch
+     * is written synchronously on the calling thread.
+     */
+    public void enqueue(List<EndpointHit> hits) {
+        int queued = 0;
+        try {
+            while (queued < hits.size() && running
+                    && queue.offer(hits.get(queued), offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                queued++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (queued < hits.size()) {
+            List<EndpointHit> overflow = hits.subList(queued, hits.size());
+            overflowCounter.increment(overflow.size());
+            log.debug("Write-behind buffer is full, write {} hits synchronously", overflow.size());
+            save(overflow);
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writer = new Thread(() -> WriteRoutingDataSource.write(this::drain), "hit-write-behind");
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            writer.join(drainTimeoutMs);
+            if (writer.isAlive()) {
+                writer.interrupt();
+                writer.join(drainTimeoutMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.warn("Write-behind buffer stopped with {} unwritten hits", queue.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 4096;
+    }
+
+    private void drain() {
+        List<EndpointHit> group = new ArrayList<>(flushSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                collect(group);
+                commit(group);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failedCounter.increment(group.size() + queue.size());
+            log.error("Write-behind buffer was interrupted, drop {} unwritten hits", group.size() + queue.size());
+            queue.clear();
+        }
+    }
+
+    private void collect(List<EndpointHit> group) throws InterruptedException {
+        EndpointHit first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        group.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (group.size() < flushSize) {
+            queue.drainTo(group, flushSize - group.size());
+            long remaining = deadline - System.nanoTime();
+            if (group.size() >= flushSize || remaining <= 0 || !running) {
+                return;
+            }
+            EndpointHit next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            group.add(next);
+        }
+    }
+
+    /**
+     * Writes the group, retrying with exponential backoff: while the database is unavailable for as long as the
+     * buffer runs, and up to {@code stats.ingestion.max-retries} times for other errors, after which the hits are
+     * written one by one so that only those the database rejects are dropped.
+     */
+    private void commit(List<EndpointHit> group) throws InterruptedException {
+        if (group.isEmpty()) {
+            return;
+        }
+        long backoffMs = retryBackoffMs;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                commitTimer.record(() -> hitStorage.save(group));
+                break;
+            } catch (RuntimeException e) {
+                if (!isUnavailable(e) && attempt >= maxRetries) {
+                    log.warn("Write-behind buffer failed to commit {} hits after {} attempts, write them one by one:"
+                            + " {}", group.size(), attempt + 1, e.getMessage());
+                    commitEach(group);
+                    group.clear();
+                    return;
+                }
+                retryCounter.increment();
+                log.warn("Write-behind buffer failed to commit {} hits, retry in {} ms: {}", group.size(), backoffMs,
+                        e.getMessage());
+                Thread.sleep(backoffMs);
+                backoffMs = Math.min(backoffMs * 2, maxRetryBackoffMs);
+            }
+        }
+        log.debug("Write-behind buffer committed {} hits", group.size());
+        hitListeners.forEach(listener -> listener.onHitsSaved(group));
+        group.clear();
+    }
+
+    private static boolean isUnavailable(RuntimeException e) {
+        return e instanceof TransientDataAccessException || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    private void commitEach(List<EndpointHit> group) {
+        for (EndpointHit hit : group) {
+            try {
+                save(List.of(hit));
+            } catch (RuntimeException e) {
+                failedCounter.increment();
+                log.error("Write-behind buffer dropped a hit of {} rejected by the database: {}", hit.getUri(),
+                        e.getMessage());
+            }
+        }
+    }
+
+    private void save(List<EndpointHit> hits) {
+        hitStorage.save(hits);
+        hitListeners.forEach(listener -> listener.onHitsSaved(hits));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,270 @@
+package ru.practicum.stats.server.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Immutable columnar file with archived hits. The header holds the row count, the timestamp range, the app and uri
+ * dictionaries and the offsets of four deflated columns: zigzag varint deltas of the timestamps in milliseconds,
+ * varint app ids, varint uri ids and length-prefixed binary ips. Reading a file inflates its columns into arrays once,
+ * so a read file can be scanned any number of times without touching the disk or inflating again.
+ */
+public final class ArchiveFile {
+    private static final int MAGIC = 0x45574d41;
+    private static final int VERSION = 1;
+    private static final int TIMESTAMPS = 0;
+    private static final int APPS = 1;
+    private static final int URIS = 2;
+    private static final int IPS = 3;
+    private static final int COLUMNS = 4;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int rows;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final String[] apps;
+    private final String[] uris;
+    private final long[] timestamps;
+    private final int[] appIds;
+    private final int[] uriIds;
+    private final byte[] ips;
+
+    private ArchiveFile(byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a hit archive");
+        }
+        rows = buffer.getInt();
+        minTimestamp = buffer.getLong();
+        maxTimestamp = buffer.getLong();
+        apps = readNames(buffer);
+        uris = readNames(buffer);
+        int[] offsets = new int[COLUMNS];
+        int[] lengths = new int[COLUMNS];
+        int offset = buffer.position() + COLUMNS * Integer.BYTES;
+        for (int i = 0; i < COLUMNS; i++) {
+            offsets[i] = offset;
+            lengths[i] = buffer.getInt();
+            offset += lengths[i];
+        }
+        if (offset != bytes.length) {
+            throw new IOException("Hit archive is truncated");
+        }
+        timestamps = new long[rows];
+        appIds = new int[rows];
+        uriIds = new int[rows];
+        try (DataInputStream timestampColumn = column(bytes, offsets[TIMESTAMPS], lengths[TIMESTAMPS]);
+             DataInputStream appColumn = column(bytes, offsets[APPS], lengths[APPS]);
+             DataInputStream uriColumn = column(bytes, offsets[URIS], lengths[URIS]);
+             DataInputStream ipColumn = column(bytes, offsets[IPS], lengths[IPS])) {
+            long timestamp = 0;
+            for (int i = 0; i < rows; i++) {
+                timestamp += zigZagDecode(readVarLong(timestampColumn));
+                timestamps[i] = timestamp;
+                appIds[i] = (int) readVarLong(appColumn);
+                uriIds[i] = (int) readVarLong(uriColumn);
+            }
+            ips = ipColumn.readAllBytes();
+        }
+    }
+
+    public static ArchiveFile read(Path path) throws IOException {
+        return new ArchiveFile(Files.readAllBytes(path));
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Approximate heap size of the decoded file in bytes.
+     */
+    public long getSize() {
+        return (long) rows * (Long.BYTES + 2 * Integer.BYTES) + ips.length;
+    }
+
+    public boolean overlaps(long from, long to) {
+        return rows > 0 && minTimestamp <= to && maxTimestamp >= from;
+    }
+
+    /**
+     * Visits the hits with timestamps in [from, to] milliseconds and, unless {@code uriFilter} is null, one of the
+     * given uris. Without {@code withIps} the visitor gets null ips.
+     */
+    public void scan(long from, long to, Collection<String> uriFilter, boolean withIps, HitVisitor visitor) {
+        if (!overlaps(from, to)) {
+            return;
+        }
+        boolean[] selected = new boolean[uris.length];
+        boolean any = false;
+        for (int i = 0; i < uris.length; i++) {
+            selected[i] = uriFilter == null || uriFilter.contains(uris[i]);
+            any |= selected[i];
+        }
+        if (!any) {
+            return;
+        }
+        int ipOffset = 0;
+        for (int i = 0; i < rows; i++) {
+            long timestamp = timestamps[i];
+            boolean matches = timestamp >= from && timestamp <= to && selected[uriIds[i]];
+            byte[] ip = null;
+            if (withIps) {
+                int ipLength = Byte.toUnsignedInt(ips[ipOffset]);
+                if (matches) {
+                    ip = Arrays.copyOfRange(ips, ipOffset + 1, ipOffset + 1 + ipLength);
+                }
+                ipOffset += 1 + ipLength;
+            }
+            if (matches) {
+                visitor.visit(timestamp, apps[appIds[i]], uris[uriIds[i]], ip);
+            }
+        }
+    }
+
+    private static DataInputStream column(byte[] bytes, int offset, int length) {
+        return new DataInputStream(new BufferedInputStream(new InflaterInputStream(
+                new ByteArrayInputStream(bytes, offset, length)), BUFFER_SIZE));
+    }
+
+    private static String[] readNames(ByteBuffer buffer) {
+        String[] names = new String[buffer.getInt()];
+        for (int i = 0; i < names.length; i++) {
+            byte[] name = new byte[Short.toUnsignedInt(buffer.getShort())];
+            buffer.get(name);
+            names[i] = new String(name, StandardCharsets.UTF_8);
+        }
+        return names;
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Hit archive column is truncated");
+            }
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in hit archive");
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long zigZagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long zigZagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Builds an archive in memory, keeping only the deflated columns. Hits are best added in timestamp order so the
+     * deltas stay small, but any order is valid.
+     */
+    public static final class Writer {
+        private final Map<String, Integer> apps = new LinkedHashMap<>();
+        private final Map<String, Integer> uris = new LinkedHashMap<>();
+        private final ByteArrayOutputStream[] buffers = new ByteArrayOutputStream[COLUMNS];
+        private final DataOutputStream[] columns = new DataOutputStream[COLUMNS];
+        private int rows;
+        private long lastTimestamp;
+        private long minTimestamp = Long.MAX_VALUE;
+        private long maxTimestamp = Long.MIN_VALUE;
+
+        public Writer() {
+            for (int i = 0; i < COLUMNS; i++) {
+                buffers[i] = new ByteArrayOutputStream();
+                columns[i] = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(buffers[i]),
+                        BUFFER_SIZE));
+            }
+        }
+
+        public void add(long timestamp, String app, String uri, byte[] ip) {
+            try {
+                writeVarLong(columns[TIMESTAMPS], zigZagEncode(timestamp - lastTimestamp));
+                writeVarLong(columns[APPS], apps.computeIfAbsent(app, name -> apps.size()));
+                writeVarLong(columns[URIS], uris.computeIfAbsent(uri, name -> uris.size()));
+                columns[IPS].writeByte(ip.length);
+                columns[IPS].write(ip);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            lastTimestamp = timestamp;
+            minTimestamp = Math.min(minTimestamp, timestamp);
+            maxTimestamp = Math.max(maxTimestamp, timestamp);
+            rows++;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        /**
+         * Writes the archive to a temporary file next to {@code path} and moves it into place, so readers never see
+         * a partial file.
+         */
+        public void write(Path path) throws IOException {
+            for (DataOutputStream column : columns) {
+                column.close();
+            }
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp),
+                    BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(rows);
+                out.writeLong(rows == 0 ? 0 : minTimestamp);
+                out.writeLong(rows == 0 ? 0 : maxTimestamp);
+                writeNames(out, apps.keySet());
+                writeNames(out, uris.keySet());
+                for (ByteArrayOutputStream buffer : buffers) {
+                    out.writeInt(buffer.size());
+                }
+                for (ByteArrayOutputStream buffer : buffers) {
+                    buffer.writeTo(out);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private void writeNames(DataOutputStream out, Collection<String> names) throws IOException {
+            out.writeInt(names.size());
+            for (String name : names) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package ru.practicum.stats.server.storage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.stats.server.model.AppUri;
+import ru.practicum.stats.server.model.ArchiveRange;
+import ru.practicum.stats.server.model.RangePart;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.model.ViewStats;
+import ru.practicum.stats.server.repository.ArchiveRepository;
+import ru.practicum.stats.server.repository.HitRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cold tier for raw hits. Before raw hits are compacted, whole days of them are exported into {@link ArchiveFile}s
+ * under {@code stats.archive.dir}, and raw ranges below the compaction watermark are scanned from those files. The
+ * archived range is stored in the database next to the watermark, so files left from another database are ignored
+ * until they are overwritten. Decoded files are kept in an LRU cache of up to {@code stats.archive.cache-mb}, so
+ * repeated queries over the same days do not read and inflate them again.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.archive.enabled", havingValue = "true")
+public class HitArchive {
+    private static final String SUFFIX = ".v1.arc";
+
+    private final HitRepository hitRepository;
+    private final ArchiveRepository archiveRepository;
+    private final Path directory;
+    private final long cacheBytes;
+    private final Map<LocalDate, CachedFile> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    public HitArchive(HitRepository hitRepository, ArchiveRepository archiveRepository,
+                      @Value("${stats.archive.dir:archive}") String directory,
+                      @Value("${stats.archive.cache-mb:256}") long cacheMb) {
+        this.hitRepository = hitRepository;
+        this.archiveRepository = archiveRepository;
+        this.directory = Path.of(directory);
+        this.cacheBytes = cacheMb * 1024 * 1024;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        log.info("Hit archive is kept in {}", directory.toAbsolutePath());
+    }
+
+    public ArchiveRange getRange() {
+        return archiveRepository.getRange();
+    }
+
+    public void setRange(ArchiveRange range) {
+        archiveRepository.setRange(range);
+    }
+
+    public boolean covers(LocalDateTime time) {
+        ArchiveRange range = getRange();
+        return range != null && range.contains(time);
+    }
+
+    /**
+     * Returns the id up to which hits may be archived and then deleted: every hit with an id up to it is committed,
+     * so an export sees all of them.
+     */
+    @Transactional
+    public long findLastHitId() {
+        return hitRepository.findCommittedMaxId();
+    }
+
+    /**
+     * Writes the raw hits of the day with ids up to {@code maxHitId} into its archive file, replacing the file if
+     * it exists; days without hits have no file. Does not change the archived range.
+     */
+    @Transactional(readOnly = true)
+    public void exportDay(LocalDate day, long maxHitId) {
+        ArchiveFile.Writer writer = new ArchiveFile.Writer();
+        hitRepository.scanHits(day.atStartOfDay(), day.plusDays(1).atStartOfDay(), 0, maxHitId, writer::add);
+        if (writer.getRows() == 0) {
+            try {
+                Files.deleteIfExists(path(day));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            evict(day);
+            return;
+        }
+        write(writer, day);
+        log.info("Archived {} hits of {}", writer.getRows(), day);
+    }
+
+    /**
+     * Merges the raw hits of archived days saved since the last export, up to {@code maxHitId}, into their files
+     * and returns how many were merged. The caller deletes them afterwards.
+     */
+    @Transactional
+    public int archiveLateHits(long maxHitId) {
+        ArchiveRange range = getRange();
+        if (range == null || range.maxHitId() >= maxHitId) {
+            return 0;
+        }
+        LateHitMerger merger = new LateHitMerger();
+        hitRepository.scanHits(range.from(), range.before(), range.maxHitId(), maxHitId, merger);
+        merger.finish();
+        setRange(new ArchiveRange(range.from(), range.before(), maxHitId));
+        return merger.merged;
+    }
+
+    /**
+     * Deletes the files of the days before the retention cutoff and moves the start of the archived range to it.
+     */
+    public void deleteBefore(LocalDateTime cutoff) {
+        ArchiveRange range = getRange();
+        if (range == null || !range.from().isBefore(cutoff)) {
+            return;
+        }
+        for (LocalDateTime day = RollupGranularity.DAY.floor(range.from()); !day.plusDays(1).isAfter(cutoff);
+             day = day.plusDays(1)) {
+            try {
+                Files.deleteIfExists(path(day.toLocalDate()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            evict(day.toLocalDate());
+        }
+        setRange(new ArchiveRange(cutoff.isBefore(range.before()) ? cutoff : range.before(), range.before(),
+                range.maxHitId()));
+    }
+
+    public List<ViewStats> getViewStats(RangePart part, Collection<String> uris) {
+        Map<AppUri, Long> counts = new HashMap<>();
+        scan(part, uris, false, (timestamp, app, uri, ip) -> counts.merge(new AppUri(app, uri), 1L, Long::sum));
+        List<ViewStats> viewStats = new ArrayList<>(counts.size());
+        counts.forEach((key, hits) -> viewStats.add(new ViewStats(key.app(), key.uri(), hits)));
+        return viewStats;
+    }
+
+    /**
+     * Visits the archived hits of the range part; the part is clipped to the archived range.
+     */
+    public void scan(RangePart part, Collection<String> uris, boolean withIps, HitVisitor visitor) {
+        ArchiveRange range = getRange();
+        if (range == null || !part.to().isAfter(range.from())) {
+            return;
+        }
+        long from = toEpochMilli(part.from().isBefore(range.from()) ? range.from() : part.from());
+        long to = part.to().isBefore(range.before())
+                ? toEpochMilli(part.to()) - (part.toInclusive() ? 0 : 1)
+                : toEpochMilli(range.before()) - 1;
+        if (from > to) {
+            return;
+        }
+        for (LocalDate day = toDay(from); day.atStartOfDay().isBefore(range.before())
+                && !day.isAfter(toDay(to)); day = day.plusDays(1)) {
+            ArchiveFile file = file(day);
+            if (file != null) {
+                file.scan(from, to, uris, withIps, visitor);
+            }
+        }
+    }
+
+    /**
+     * Returns the decoded file of the day, or null if the day has no file. A cached file is used while the file on
+     * disk has the same identity and modification time, so a rewritten file is read again.
+     */
+    private ArchiveFile file(LocalDate day) {
+        Path path = path(day);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            FileVersion version = new FileVersion(attributes.fileKey(), attributes.lastModifiedTime(),
+                    attributes.size());
+            synchronized (cache) {
+                CachedFile cached = cache.get(day);
+                if (cached != null && cached.version().equals(version)) {
+                    return cached.file();
+                }
+            }
+            ArchiveFile file = ArchiveFile.read(path);
+            cache(day, new CachedFile(version, file));
+            return file;
+        } catch (NoSuchFileException e) {
+            evict(day);
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read hit archive " + path, e);
+        }
+    }
+
+    private void cache(LocalDate day, CachedFile cached) {
+        if (cached.file().getSize() > cacheBytes) {
+            evict(day);
+            return;
+        }
+        synchronized (cache) {
+            CachedFile replaced = cache.put(day, cached);
+            cachedBytes += cached.file().getSize() - (replaced == null ? 0 : replaced.file().getSize());
+            Iterator<CachedFile> eldest = cache.values().iterator();
+            while (cachedBytes > cacheBytes) {
+                cachedBytes -= eldest.next().file().getSize();
+                eldest.remove();
+            }
+        }
+    }
+
+    private void evict(LocalDate day) {
+        synchronized (cache) {
+            CachedFile removed = cache.remove(day);
+            if (removed != null) {
+                cachedBytes -= removed.file().getSize();
+            }
+        }
+    }
+
+    private void write(ArchiveFile.Writer writer, LocalDate day) {
+        try {
+            writer.write(path(day));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write hit archive of " + day, e);
+        }
+    }
+
+    private Path path(LocalDate day) {
+        return directory.resolve(day + SUFFIX);
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDate toDay(long epochMilli) {
+        return LocalDate.ofEpochDay(Math.floorDiv(epochMilli, 86_400_000L));
+    }
+
+    private final class LateHitMerger implements HitVisitor {
+        private LocalDate day;
+        private ArchiveFile.Writer writer;
+        private int merged;
+
+        @Override
+        public void visit(long timestamp, String app, String uri, byte[] ip) {
+            LocalDate hitDay = toDay(timestamp);
+            if (!hitDay.equals(day)) {
+                finish();
+                day = hitDay;
+                writer = new ArchiveFile.Writer();
+                ArchiveFile file = file(day);
+                if (file != null) {
+                    file.scan(Long.MIN_VALUE, Long.MAX_VALUE, null, true, writer::add);
+                }
+            }
+            writer.add(timestamp, app, uri, ip);
+            merged++;
+        }
+
+        private void finish() {
+            if (writer != null) {
+                write(writer, day);
+                log.info("Merged late hits into the archive of {}", day);
+            }
+        }
+    }
+
+    private record FileVersion(Object key, FileTime modified, long size) {
+    }
+
+    private record CachedFile(FileVersion version, ArchiveFile file) {
+    }
+}
@@ -0,0 +1,39 @@
+package ru.practicum.stats.server.storage;
+
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.model.ViewStats;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public interface HitStorage {
+    /**
+     * Whether the hit can be stored; hits that can't are rejected before they are written.
+     */
+    default boolean accepts(EndpointHit hit) {
+        return true;
+    }
+
+    void save(List<EndpointHit> hits);
+
+    List<ViewStats> getViewStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                 boolean approx);
+
+    /**
+     * Estimates the stats from the hits of the ips in the first {@code buckets} of
+     * {@link ru.practicum.stats.server.utils.HitSampling}, with 95% bounds.
+     */
+    List<ViewStats> getSampledViewStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                        int buckets);
+
+    Map<LocalDateTime, Long> getTimeSeries(String uri, RollupGranularity step, LocalDateTime from,
+                                           LocalDateTime to);
+
+    default void streamViewStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                 boolean approx, Consumer<ViewStats> consumer) {
+        getViewStats(start, end, uris, unique, approx).forEach(consumer);
+    }
+}
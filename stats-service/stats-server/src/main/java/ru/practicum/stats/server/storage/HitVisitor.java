@@ -0,0 +1,6 @@
+package ru.practicum.stats.server.storage;
+
+@FunctionalInterface
+public interface HitVisitor {
+    void visit(long timestamp, String app, String uri, byte[] ip);
+}
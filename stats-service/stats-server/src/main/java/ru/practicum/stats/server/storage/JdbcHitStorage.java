@@ -0,0 +1,207 @@
+package ru.practicum.stats.server.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.server.config.DatabaseDialect;
+import ru.practicum.stats.server.model.AppUri;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.RangePart;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.model.ViewStats;
+import ru.practicum.stats.server.repository.CompactionRepository;
+import ru.practicum.stats.server.repository.CounterRepository;
+import ru.practicum.stats.server.repository.DictionaryRepository;
+import ru.practicum.stats.server.repository.HitBatchRepository;
+import ru.practicum.stats.server.repository.HitRepository;
+import ru.practicum.stats.server.repository.RollupRepository;
+import ru.practicum.stats.server.service.HyperLogLogStore;
+import ru.practicum.stats.server.service.RollupPlanner;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "stats.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcHitStorage implements HitStorage {
+    private static final int MAX_NAME_LENGTH = 255;
+
+    private final HitRepository hitRepository;
+    private final HitBatchRepository hitBatchRepository;
+    private final RollupRepository rollupRepository;
+    private final CounterRepository counterRepository;
+    private final CompactionRepository compactionRepository;
+    private final DictionaryRepository dictionaryRepository;
+    private final RollupPlanner rollupPlanner;
+    private final HyperLogLogStore hyperLogLogStore;
+    private final Optional<HitArchive> hitArchive;
+    private final TransactionTemplate transactionTemplate;
+    private final DatabaseDialect databaseDialect;
+    private final Lock mergeLock = new ReentrantLock();
+
+    /**
+     * Whether the app and uri fit the dictionary names, so that one long uri can't fail the insert of its batch.
+     */
+    @Override
+    public boolean accepts(EndpointHit hit) {
+        return hit.getApp().getBytes(StandardCharsets.UTF_8).length <= MAX_NAME_LENGTH
+                && hit.getUri().getBytes(StandardCharsets.UTF_8).length <= MAX_NAME_LENGTH;
+    }
+
+    /**
+     * Writes the hits, rollups, counters and sketches in one transaction; new apps and uris are added to the
+     * dictionaries before it, so a write holds one connection. The MERGE upserts of H2 don't lock absent keys, and two
+     * writers adding the same new rollup or counter row would fail one of them with a duplicate key, so on H2 the
+     * transactions run one at a time.
+     */
+    @Override
+    public void save(List<EndpointHit> hits) {
+        dictionaryRepository.resolve(hits);
+        boolean serialized = databaseDialect != DatabaseDialect.POSTGRESQL;
+        if (serialized) {
+            mergeLock.lock();
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                hitBatchRepository.saveAll(hits);
+                rollupRepository.addHits(hits);
+                counterRepository.addHits(hits);
+            });
+        } finally {
+            if (serialized) {
+                mergeLock.unlock();
+            }
+        }
+        hyperLogLogStore.offer(hits);
+    }
+
+    @Override
+    public List<ViewStats> getViewStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                        boolean approx) {
+        if (uris != null && uris.isEmpty()) {
+            return List.of();
+        }
+        if (unique && compactionRepository.isCompacted(start)) {
+            if (!approx && hitArchive.isPresent() && hitArchive.get().covers(start)) {
+                return getArchivedUniqueViewStats(start, end, uris);
+            }
+            return hyperLogLogStore.getUniqueViewStats(start, end, uris);
+        }
+        if (!unique && counterRepository.covers(start, end, uris)) {
+            return counterRepository.getViewStats(uris);
+        }
+        if (unique && approx) {
+            return hyperLogLogStore.getUniqueViewStats(start, end, uris);
+        }
+        if (unique) {
+            return hitRepository.getUniqueViewStats(start, end, uris);
+        }
+        return getRollupViewStats(start, end, uris);
+    }
+
+    /**
+     * Samples raw hits from the database and, below the compaction watermark, from the archive. Without an archive
+     * compacted ranges have no raw hits left, so they are answered from rollups and sketches without bounds.
+     */
+    @Override
+    public List<ViewStats> getSampledViewStats(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                               boolean unique, int buckets) {
+        if (uris != null && uris.isEmpty()) {
+            return List.of();
+        }
+        SampledStats sample = new SampledStats(buckets);
+        LocalDateTime rawFrom = start;
+        if (compactionRepository.isCompacted(start)) {
+            if (hitArchive.isEmpty() || !hitArchive.get().covers(start)) {
+                return getViewStats(start, end, uris, unique, true);
+            }
+            hitArchive.get().scan(new RangePart(null, start, end, true), uris, true, (timestamp, app, uri, ip) -> {
+                if (sample.isSampled(ip)) {
+                    sample.add(new AppUri(app, uri), ip, 1);
+                }
+            });
+            rawFrom = compactionRepository.getCompactedBefore();
+        }
+        if (!end.isBefore(rawFrom)) {
+            hitRepository.addSampledHits(rawFrom, end, uris, sample);
+        }
+        return sample.toViewStats(unique);
+    }
+
+    @Override
+    public Map<LocalDateTime, Long> getTimeSeries(String uri, RollupGranularity step, LocalDateTime from,
+                                                  LocalDateTime to) {
+        return rollupRepository.getTimeSeries(uri, step, from, to);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamViewStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                boolean approx, Consumer<ViewStats> consumer) {
+        if (uris != null && uris.isEmpty()) {
+            return;
+        }
+        if (compactionRepository.isCompacted(start)) {
+            getViewStats(start, end, uris, unique, approx).forEach(consumer);
+        } else if (unique && approx) {
+            hyperLogLogStore.getUniqueViewStats(start, end, uris).forEach(consumer);
+        } else if (unique) {
+            hitRepository.streamUniqueViewStats(start, end, uris, consumer);
+        } else {
+            rollupRepository.streamViewStats(rollupPlanner.plan(start, end), uris, consumer);
+        }
+    }
+
+    private List<ViewStats> getRollupViewStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        Map<AppUri, ViewStats> totals = new HashMap<>();
+        for (RangePart part : rollupPlanner.plan(start, end)) {
+            List<ViewStats> partStats = part.isRaw() && compactionRepository.isCompacted(part.from())
+                    ? hitArchive.orElseThrow().getViewStats(part, uris)
+                    : rollupRepository.getViewStats(part, uris);
+            for (ViewStats stats : partStats) {
+                totals.merge(new AppUri(stats.getApp(), stats.getUri()), stats, (total, added) -> {
+                    total.setHits(total.getHits() + added.getHits());
+                    return total;
+                });
+            }
+        }
+        List<ViewStats> viewStats = new ArrayList<>(totals.values());
+        viewStats.sort(Comparator.comparingLong(ViewStats::getHits).reversed());
+        return viewStats;
+    }
+
+    /**
+     * Exact unique counts for a range starting in the archive: the distinct ips of the archived part and of the
+     * raw hits from the compaction watermark on are merged in memory.
+     */
+    private List<ViewStats> getArchivedUniqueViewStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        Map<AppUri, Set<ByteBuffer>> ips = new HashMap<>();
+        hitArchive.orElseThrow().scan(new RangePart(null, start, end, true), uris, true,
+                (timestamp, app, uri, ip) -> ips.computeIfAbsent(new AppUri(app, uri), appUri -> new HashSet<>())
+                        .add(ByteBuffer.wrap(ip)));
+        LocalDateTime compactedBefore = compactionRepository.getCompactedBefore();
+        if (!end.isBefore(compactedBefore)) {
+            hitRepository.forEachDistinctIp(compactedBefore, end, uris,
+                    (appUri, ip) -> ips.computeIfAbsent(appUri, key -> new HashSet<>()).add(ByteBuffer.wrap(ip)));
+        }
+        List<ViewStats> viewStats = new ArrayList<>(ips.size());
+        ips.forEach((key, values) -> viewStats.add(new ViewStats(key.app(), key.uri(), values.size())));
+        viewStats.sort(Comparator.comparingLong(ViewStats::getHits).reversed());
+        return viewStats;
+    }
+}
@@ -0,0 +1,61 @@
+package ru.practicum.stats.server.storage;
+
+import ru.practicum.stats.server.model.AppUri;
+import ru.practicum.stats.server.model.ViewStats;
+import ru.practicum.stats.server.utils.HitSampling;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates stats from the hits of the ips sampled by {@link HitSampling}. Keeping or dropping whole ips makes the
+ * sample a cluster sample: the distinct ip count is binomial, with variance u(1 - r) / r of the scaled estimate, and
+ * the variance of the scaled hit count is (1 - r) / r^2 times the sum of squared per-ip hits, both estimated from the
+ * sample. Bounds are the normal 95% interval, never below what the sample itself has seen.
+ */
+public final class SampledStats {
+    private static final double Z = 1.96;
+
+    private final int buckets;
+    private final double rate;
+    private final Map<AppUri, Map<ByteBuffer, Long>> hits = new HashMap<>();
+
+    public SampledStats(int buckets) {
+        this.buckets = buckets;
+        this.rate = (double) buckets / HitSampling.BUCKETS;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    public boolean isSampled(byte[] ip) {
+        return HitSampling.bucket(ip) < buckets;
+    }
+
+    public void add(AppUri key, byte[] ip, long count) {
+        hits.computeIfAbsent(key, appUri -> new HashMap<>()).merge(ByteBuffer.wrap(ip), count, Long::sum);
+    }
+
+    public List<ViewStats> toViewStats(boolean unique) {
+        List<ViewStats> viewStats = new ArrayList<>(hits.size());
+        hits.forEach((key, ips) -> {
+            double sampled = 0;
+            double variance = 0;
+            for (long count : ips.values()) {
+                sampled += unique ? 1 : count;
+                variance += unique ? 1 : (double) count * count;
+            }
+            double estimate = sampled / rate;
+            double margin = Z * Math.sqrt((1 - rate) * variance) / rate;
+            viewStats.add(new ViewStats(key.app(), key.uri(), Math.round(estimate),
+                    Math.round(Math.max(sampled, estimate - margin)), Math.round(estimate + margin)));
+        });
+        viewStats.sort(Comparator.comparingLong(ViewStats::getHits).reversed());
+        return viewStats;
+    }
+}
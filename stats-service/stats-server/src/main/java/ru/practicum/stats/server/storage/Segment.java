@@ -0,0 +1,207 @@
+package ru.practicum.stats.server.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only memory-mapped file of hit records, each a length, a CRC32C of the rest of the record, the timestamp and
+ * the length-prefixed app, uri and ip. The length is written last, and recovery stops at the first record whose
+ * length or checksum is wrong, so a torn write is never read back as a hit. Appended records are durable once
+ * {@link #force} has returned; before that they survive a crash of the process, but not of the operating system.
+ */
+public class Segment implements Closeable {
+    private static final int CHECKSUM_OFFSET = Integer.BYTES;
+    private static final int TIMESTAMP_OFFSET = CHECKSUM_OFFSET + Integer.BYTES;
+    private static final int RECORD_HEADER = TIMESTAMP_OFFSET + Long.BYTES + 3 * Short.BYTES;
+
+    private final long id;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final int indexInterval;
+    private final List<Block> blocks = new ArrayList<>();
+    private int size;
+    private int forced;
+    private long minTimestamp = Long.MAX_VALUE;
+    private long maxTimestamp = Long.MIN_VALUE;
+
+    private Segment(long id, FileChannel channel, int capacity, int indexInterval) throws IOException {
+        this.id = id;
+        this.channel = channel;
+        this.capacity = capacity;
+        this.indexInterval = indexInterval;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    public static Segment open(Path path, long id, int capacity, int indexInterval) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        int mapped = (int) Math.max(channel.size(), capacity);
+        Segment segment = new Segment(id, channel, mapped, indexInterval);
+        segment.recover();
+        return segment;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public synchronized boolean overlaps(long from, long to) {
+        return size > 0 && minTimestamp <= to && maxTimestamp >= from;
+    }
+
+    public synchronized boolean append(long timestamp, byte[] app, byte[] uri, byte[] ip) {
+        int length = RECORD_HEADER + app.length + uri.length + ip.length;
+        if (size + length + Integer.BYTES > capacity) {
+            return false;
+        }
+        int position = size + TIMESTAMP_OFFSET;
+        buffer.putLong(position, timestamp);
+        position += Long.BYTES;
+        position = putBytes(position, app);
+        position = putBytes(position, uri);
+        putBytes(position, ip);
+        buffer.putInt(size + CHECKSUM_OFFSET, checksum(size, length));
+        buffer.putInt(size, length - Integer.BYTES);
+        index(size, size + length, timestamp);
+        size += length;
+        return true;
+    }
+
+    public void scan(long from, long to, HitVisitor visitor) {
+        List<Block> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(blocks.size());
+            for (Block block : blocks) {
+                snapshot.add(block.copy());
+            }
+        }
+        for (Block block : snapshot) {
+            if (block.min > to || block.max < from) {
+                continue;
+            }
+            int position = block.start;
+            while (position < block.end) {
+                int length = buffer.getInt(position);
+                long timestamp = buffer.getLong(position + TIMESTAMP_OFFSET);
+                if (timestamp >= from && timestamp <= to) {
+                    int offset = position + TIMESTAMP_OFFSET + Long.BYTES;
+                    String app = getString(offset);
+                    offset += Short.BYTES + buffer.getShort(offset);
+                    String uri = getString(offset);
+                    offset += Short.BYTES + buffer.getShort(offset);
+                    visitor.visit(timestamp, app, uri, getBytes(offset));
+                }
+                position += Integer.BYTES + length;
+            }
+        }
+    }
+
+    /**
+     * Writes the records appended since the last force to the disk. Appends go on meanwhile; records appended while
+     * it runs are left to the next force.
+     */
+    public void force() {
+        int from;
+        int to;
+        synchronized (this) {
+            from = forced;
+            to = size;
+        }
+        if (to > from) {
+            buffer.force(from, to - from);
+            synchronized (this) {
+                forced = Math.max(forced, to);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private void recover() {
+        int position = 0;
+        while (position + Integer.BYTES <= capacity) {
+            int length = buffer.getInt(position);
+            if (length < RECORD_HEADER - Integer.BYTES || position + Integer.BYTES + length > capacity
+                    || buffer.getInt(position + CHECKSUM_OFFSET) != checksum(position, Integer.BYTES + length)) {
+                break;
+            }
+            index(position, position + Integer.BYTES + length, buffer.getLong(position + TIMESTAMP_OFFSET));
+            position += Integer.BYTES + length;
+        }
+        size = position;
+        forced = position;
+    }
+
+    /**
+     * CRC32C of the record at {@code position} from its timestamp on.
+     */
+    private int checksum(int position, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(position + TIMESTAMP_OFFSET, length - TIMESTAMP_OFFSET));
+        return (int) crc.getValue();
+    }
+
+    private void index(int start, int end, long timestamp) {
+        Block block = blocks.isEmpty() ? null : blocks.getLast();
+        if (block == null || block.count >= indexInterval) {
+            block = new Block(start);
+            blocks.add(block);
+        }
+        block.end = end;
+        block.count++;
+        block.min = Math.min(block.min, timestamp);
+        block.max = Math.max(block.max, timestamp);
+        minTimestamp = Math.min(minTimestamp, timestamp);
+        maxTimestamp = Math.max(maxTimestamp, timestamp);
+    }
+
+    private int putBytes(int position, byte[] bytes) {
+        buffer.putShort(position, (short) bytes.length);
+        buffer.put(position + Short.BYTES, bytes);
+        return position + Short.BYTES + bytes.length;
+    }
+
+    private String getString(int position) {
+        return new String(getBytes(position), StandardCharsets.UTF_8);
+    }
+
+    private byte[] getBytes(int position) {
+        byte[] bytes = new byte[buffer.getShort(position)];
+        buffer.get(position + Short.BYTES, bytes);
+        return bytes;
+    }
+
+    private static final class Block {
+        private final int start;
+        private int end;
+        private int count;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+
+        private Block(int start) {
+            this.start = start;
+        }
+
+        private Block copy() {
+            Block copy = new Block(start);
+            copy.end = end;
+            copy.count = count;
+            copy.min = min;
+            copy.max = max;
+            return copy;
+        }
+    }
+}
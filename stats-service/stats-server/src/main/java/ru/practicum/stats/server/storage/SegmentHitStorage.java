@@ -0,0 +1,225 @@
+package ru.practicum.stats.server.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.server.model.AppUri;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.model.ViewStats;
+import ru.practicum.stats.server.utils.IpAddresses;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Hits in append-only {@link Segment} files. With {@code stats.storage.segment.force-per-batch}, the default, a saved
+ * batch is forced to the disk before {@link #save} returns, so an acknowledged hit survives a crash of the operating
+ * system or a power loss. Without it the active segment is forced every {@code stats.storage.segment.force-interval-ms}
+ * and a finished segment when the next one is started, so such a crash loses at most the hits of the last interval;
+ * a crash of the process alone loses nothing either way, as the mapped pages belong to the operating system.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.storage.engine", havingValue = "segment")
+public class SegmentHitStorage implements HitStorage {
+    private static final String SUFFIX = ".v3.seg";
+    private static final int MAX_FIELD_LENGTH = 255;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int indexInterval;
+    private final boolean forcePerBatch;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private Segment active;
+
+    public SegmentHitStorage(@Value("${stats.storage.segment.dir:segments}") String directory,
+                             @Value("${stats.storage.segment.size-mb:64}") int segmentSizeMb,
+                             @Value("${stats.storage.segment.index-interval:1024}") int indexInterval,
+                             @Value("${stats.storage.segment.force-per-batch:true}") boolean forcePerBatch) {
+        this.directory = Path.of(directory);
+        this.segmentSize = segmentSizeMb * 1024 * 1024;
+        this.indexInterval = indexInterval;
+        this.forcePerBatch = forcePerBatch;
+    }
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            segments.add(Segment.open(file, Long.parseLong(name.substring(0, name.length() - SUFFIX.length())),
+                    segmentSize, indexInterval));
+        }
+        active = segments.isEmpty() ? createSegment(0) : segments.getLast();
+        log.info("Opened {} hit segments in {}", segments.size(), directory.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.close();
+        }
+    }
+
+    @Override
+    public boolean accepts(EndpointHit hit) {
+        return hit.getApp().getBytes(StandardCharsets.UTF_8).length <= MAX_FIELD_LENGTH
+                && hit.getUri().getBytes(StandardCharsets.UTF_8).length <= MAX_FIELD_LENGTH;
+    }
+
+    @Override
+    public void save(List<EndpointHit> hits) {
+        List<byte[][]> records = new ArrayList<>(hits.size());
+        for (EndpointHit hit : hits) {
+            records.add(new byte[][]{encode(hit.getApp()), encode(hit.getUri()), IpAddresses.toBytes(hit.getIp())});
+        }
+        List<Segment> written = new ArrayList<>(2);
+        synchronized (this) {
+            written.add(active);
+            for (int i = 0; i < hits.size(); i++) {
+                long timestamp = toEpochMilli(hits.get(i).getTimestamp());
+                byte[][] record = records.get(i);
+                if (!active.append(timestamp, record[0], record[1], record[2])) {
+                    active = createSegment(active.getId() + 1);
+                    active.append(timestamp, record[0], record[1], record[2]);
+                    written.add(active);
+                }
+            }
+        }
+        for (Segment segment : forcePerBatch ? written : written.subList(0, written.size() - 1)) {
+            segment.force();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats.storage.segment.force-interval-ms:1000}")
+    public void forceActive() {
+        Segment segment;
+        synchronized (this) {
+            segment = active;
+        }
+        if (segment != null) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public List<ViewStats> getViewStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                        boolean approx) {
+        long from = toEpochMilli(start);
+        long to = toEpochMilli(end);
+        Set<String> uriSet = uris == null ? null : new HashSet<>(uris);
+        Map<AppUri, Long> counts = new HashMap<>();
+        Map<AppUri, Set<ByteBuffer>> ips = new HashMap<>();
+        for (Segment segment : segments) {
+            if (!segment.overlaps(from, to)) {
+                continue;
+            }
+            segment.scan(from, to, (timestamp, app, uri, ip) -> {
+                if (uriSet != null && !uriSet.contains(uri)) {
+                    return;
+                }
+                AppUri key = new AppUri(app, uri);
+                if (unique) {
+                    ips.computeIfAbsent(key, appUri -> new HashSet<>()).add(ByteBuffer.wrap(ip));
+                } else {
+                    counts.merge(key, 1L, Long::sum);
+                }
+            });
+        }
+        if (unique) {
+            ips.forEach((key, values) -> counts.put(key, (long) values.size()));
+        }
+        List<ViewStats> viewStats = new ArrayList<>(counts.size());
+        counts.forEach((key, hits) -> viewStats.add(new ViewStats(key.app(), key.uri(), hits)));
+        viewStats.sort(Comparator.comparingLong(ViewStats::getHits).reversed());
+        return viewStats;
+    }
+
+    @Override
+    public List<ViewStats> getSampledViewStats(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                               boolean unique, int buckets) {
+        long from = toEpochMilli(start);
+        long to = toEpochMilli(end);
+        Set<String> uriSet = uris == null ? null : new HashSet<>(uris);
+        SampledStats sample = new SampledStats(buckets);
+        for (Segment segment : segments) {
+            if (!segment.overlaps(from, to)) {
+                continue;
+            }
+            segment.scan(from, to, (timestamp, app, uri, ip) -> {
+                if ((uriSet == null || uriSet.contains(uri)) && sample.isSampled(ip)) {
+                    sample.add(new AppUri(app, uri), ip, 1);
+                }
+            });
+        }
+        return sample.toViewStats(unique);
+    }
+
+    @Override
+    public Map<LocalDateTime, Long> getTimeSeries(String uri, RollupGranularity step, LocalDateTime from,
+                                                  LocalDateTime to) {
+        long fromMillis = toEpochMilli(from);
+        long toMillis = toEpochMilli(to.plus(1, step.getUnit())) - 1;
+        Map<LocalDateTime, Long> series = new TreeMap<>();
+        for (Segment segment : segments) {
+            if (!segment.overlaps(fromMillis, toMillis)) {
+                continue;
+            }
+            segment.scan(fromMillis, toMillis, (timestamp, app, hitUri, ip) -> {
+                if (uri.equals(hitUri)) {
+                    series.merge(step.floor(LocalDateTime.ofEpochSecond(Math.floorDiv(timestamp, 1000), 0,
+                            ZoneOffset.UTC)), 1L, Long::sum);
+                }
+            });
+        }
+        return series;
+    }
+
+    private Segment createSegment(long id) {
+        try {
+            Segment segment = Segment.open(directory.resolve(String.format("%019d%s", id, SUFFIX)), id,
+                    segmentSize, indexInterval);
+            segments.add(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long toEpochMilli(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private byte[] encode(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_FIELD_LENGTH) {
+            throw new IllegalArgumentException("Hit fields must not be longer than " + MAX_FIELD_LENGTH + " bytes");
+        }
+        return bytes;
+    }
+}
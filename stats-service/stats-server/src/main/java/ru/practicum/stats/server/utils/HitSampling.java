@@ -0,0 +1,23 @@
+package ru.practicum.stats.server.utils;
+
+import ru.practicum.stats.dto.HitHash;
+
+/**
+ * Deterministic sampling of hits by ip. Every ip falls into one of {@link #BUCKETS} buckets by its hash, and a sample
+ * at rate r keeps the hits of the first ceil(r * BUCKETS) buckets, so all hits of an ip are kept or dropped together
+ * and the same ips are sampled by every query and on every node.
+ */
+public final class HitSampling {
+    public static final int BUCKETS = 1024;
+
+    private HitSampling() {
+    }
+
+    public static int bucket(byte[] ip) {
+        return (int) (HitHash.hash(ip) & (BUCKETS - 1));
+    }
+
+    public static int buckets(double rate) {
+        return (int) Math.max(1, Math.min(BUCKETS, Math.ceil(rate * BUCKETS)));
+    }
+}
@@ -0,0 +1,126 @@
+package ru.practicum.stats.server.utils;
+
+import ru.practicum.stats.dto.HitHash;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Canonical binary form of hit addresses: 4 bytes for IPv4 (including IPv4-mapped IPv6), 16 bytes for IPv6.
+ * Values that are not IP literals are hashed into the discard-only prefix 100::/64, so they stay distinct
+ * from real addresses and from each other. No DNS lookups are performed.
+ */
+public final class IpAddresses {
+    private static final int IPV4_LENGTH = 4;
+    private static final int IPV6_LENGTH = 16;
+    private static final int IPV6_WORDS = 8;
+    private static final long DISCARD_PREFIX = 0x0100_0000_0000_0000L;
+
+    private IpAddresses() {
+    }
+
+    public static byte[] toBytes(String value) {
+        String ip = value.strip();
+        byte[] ipv4 = parseIpv4(ip);
+        if (ipv4 != null) {
+            return ipv4;
+        }
+        byte[] ipv6 = ip.indexOf(':') >= 0 ? parseIpv6(ip) : null;
+        if (ipv6 != null) {
+            return isIpv4Mapped(ipv6) ? Arrays.copyOfRange(ipv6, IPV6_LENGTH - IPV4_LENGTH, IPV6_LENGTH) : ipv6;
+        }
+        return ByteBuffer.allocate(IPV6_LENGTH)
+                .putLong(DISCARD_PREFIX)
+                .putLong(HitHash.hash(value.getBytes(StandardCharsets.UTF_8)))
+                .array();
+    }
+
+    private static byte[] parseIpv4(String ip) {
+        String[] octets = ip.split("\\.", -1);
+        if (octets.length != IPV4_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[IPV4_LENGTH];
+        for (int i = 0; i < IPV4_LENGTH; i++) {
+            int octet = parseNumber(octets[i], 10, 3);
+            if (octet < 0 || octet > 255) {
+                return null;
+            }
+            bytes[i] = (byte) octet;
+        }
+        return bytes;
+    }
+
+    private static byte[] parseIpv6(String ip) {
+        int zone = ip.indexOf('%');
+        String address = zone >= 0 ? ip.substring(0, zone) : ip;
+        int compression = address.indexOf("::");
+        if (compression >= 0 && address.indexOf("::", compression + 1) >= 0) {
+            return null;
+        }
+        int[] head = parseWords(compression >= 0 ? address.substring(0, compression) : address, compression < 0);
+        int[] tail = compression >= 0 ? parseWords(address.substring(compression + 2), true) : new int[0];
+        if (head == null || tail == null) {
+            return null;
+        }
+        int words = head.length + tail.length;
+        if (compression >= 0 ? words >= IPV6_WORDS : words != IPV6_WORDS) {
+            return null;
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(IPV6_LENGTH);
+        for (int word : head) {
+            bytes.putShort((short) word);
+        }
+        bytes.position(IPV6_LENGTH - 2 * tail.length);
+        for (int word : tail) {
+            bytes.putShort((short) word);
+        }
+        return bytes.array();
+    }
+
+    private static int[] parseWords(String part, boolean last) {
+        if (part.isEmpty()) {
+            return new int[0];
+        }
+        String[] groups = part.split(":", -1);
+        byte[] ipv4 = last ? parseIpv4(groups[groups.length - 1]) : null;
+        int count = ipv4 == null ? groups.length : groups.length + 1;
+        int[] words = new int[count];
+        for (int i = 0; i < groups.length - (ipv4 == null ? 0 : 1); i++) {
+            words[i] = parseNumber(groups[i], 16, 4);
+            if (words[i] < 0) {
+                return null;
+            }
+        }
+        if (ipv4 != null) {
+            words[count - 2] = (ipv4[0] & 0xff) << 8 | ipv4[1] & 0xff;
+            words[count - 1] = (ipv4[2] & 0xff) << 8 | ipv4[3] & 0xff;
+        }
+        return words;
+    }
+
+    private static int parseNumber(String digits, int radix, int maxLength) {
+        if (digits.isEmpty() || digits.length() > maxLength) {
+            return -1;
+        }
+        int result = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            int digit = Character.digit(digits.charAt(i), radix);
+            if (digit < 0) {
+                return -1;
+            }
+            result = result * radix + digit;
+        }
+        return result;
+    }
+
+    private static boolean isIpv4Mapped(byte[] ipv6) {
+        for (int i = 0; i < 10; i++) {
+            if (ipv6[i] != 0) {
+                return false;
+            }
+        }
+        return ipv6[10] == (byte) 0xff && ipv6[11] == (byte) 0xff;
+    }
+}
@@ -0,0 +1,71 @@
+package ru.practicum.stats.server.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving heavy-hitters summary with a fixed number of counters. Counts never underestimate: a reported
+ * count exceeds the true one by at most its {@link Entry#error()}, which is bounded by total / capacity, and every
+ * key seen more than total / capacity times is guaranteed to be tracked.
+ */
+public class SpaceSaving<K> {
+    private static final Comparator<Counter<?>> ORDER = Comparator.<Counter<?>>comparingLong(counter -> counter.count)
+            .thenComparingLong(counter -> counter.sequence);
+
+    private final int capacity;
+    private final Map<K, Counter<K>> counters = new HashMap<>();
+    private final TreeSet<Counter<K>> ordered = new TreeSet<>(ORDER);
+    private long sequence;
+
+    public SpaceSaving(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public synchronized void offer(K key, long increment) {
+        Counter<K> counter = counters.get(key);
+        if (counter != null) {
+            ordered.remove(counter);
+            counter.count += increment;
+            ordered.add(counter);
+            return;
+        }
+        long error = 0;
+        if (counters.size() >= capacity) {
+            Counter<K> min = ordered.pollFirst();
+            counters.remove(min.key);
+            error = min.count;
+        }
+        counter = new Counter<>(key, error + increment, error, sequence++);
+        counters.put(key, counter);
+        ordered.add(counter);
+    }
+
+    public synchronized List<Entry<K>> entries() {
+        List<Entry<K>> entries = new ArrayList<>(counters.size());
+        for (Counter<K> counter : ordered.descendingSet()) {
+            entries.add(new Entry<>(counter.key, counter.count, counter.error));
+        }
+        return entries;
+    }
+
+    public record Entry<K>(K key, long count, long error) {
+    }
+
+    private static final class Counter<K> {
+        private final K key;
+        private final long error;
+        private final long sequence;
+        private long count;
+
+        private Counter(K key, long count, long error, long sequence) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+            this.sequence = sequence;
+        }
+    }
+}
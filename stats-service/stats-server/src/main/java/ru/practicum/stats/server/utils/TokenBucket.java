@@ -0,0 +1,41 @@
+package ru.practicum.stats.server.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket refilled lazily at a fixed rate up to its capacity. A request larger than the capacity is let
+ * through once the bucket is full and leaves it in debt, so oversized batches are slowed down instead of being
+ * rejected forever.
+ */
+public class TokenBucket {
+    private final double ratePerNanos;
+    private final long capacity;
+    private double tokens;
+    private long refilledAt;
+
+    public TokenBucket(long ratePerSecond, long capacity) {
+        this.ratePerNanos = (double) ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Takes the tokens and returns 0, or returns the number of nanoseconds to wait before the request can fit.
+     */
+    public synchronized long tryConsume(long amount) {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * ratePerNanos);
+        refilledAt = now;
+        double required = Math.min(amount, capacity);
+        if (tokens < required) {
+            return (long) Math.ceil((required - tokens) / ratePerNanos);
+        }
+        tokens -= amount;
+        return 0;
+    }
+
+    public synchronized void refund(long amount) {
+        tokens = Math.min(capacity, tokens + amount);
+    }
+}
@@ -0,0 +1,15 @@
+DROP TABLE IF EXISTS HITS;
+
+CREATE TABLE IF NOT EXISTS HITS
+(
+    ID        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    APP_ID    INTEGER                     NOT NULL,
+    URI_ID    INTEGER                     NOT NULL,
+    IP        BYTEA                       NOT NULL,
+    SAMPLE    SMALLINT                    NOT NULL,
+    TIMESTAMP TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS HITS_TIMESTAMP_IDX ON HITS (TIMESTAMP);
+
+CREATE INDEX IF NOT EXISTS HITS_SAMPLE_TIMESTAMP_IDX ON HITS (SAMPLE, TIMESTAMP, APP_ID, URI_ID, IP);
\ No newline at end of file
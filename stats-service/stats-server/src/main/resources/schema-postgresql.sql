@@ -0,0 +1,20 @@
+DROP TABLE IF EXISTS HITS;
+
+CREATE TABLE IF NOT EXISTS HITS
+(
+    ID        BIGSERIAL                   NOT NULL,
+    APP_ID    INTEGER                     NOT NULL,
+    URI_ID    INTEGER                     NOT NULL,
+    IP        BYTEA                       NOT NULL,
+    SAMPLE    SMALLINT                    NOT NULL,
+    TIMESTAMP TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    PRIMARY KEY (ID, TIMESTAMP)
+) PARTITION BY RANGE (TIMESTAMP);
+
+CREATE TABLE IF NOT EXISTS HITS_DEFAULT PARTITION OF HITS DEFAULT;
+
+CREATE INDEX IF NOT EXISTS HITS_TIMESTAMP_IDX ON HITS (TIMESTAMP);
+
+CREATE INDEX IF NOT EXISTS HITS_SAMPLE_TIMESTAMP_IDX ON HITS (SAMPLE, TIMESTAMP, APP_ID, URI_ID, IP);
+
+CREATE INDEX IF NOT EXISTS HITS_URI_TIMESTAMP_IDX ON HITS (URI_ID, TIMESTAMP);
\ No newline at end of file
@@ -1,4 +1,13 @@
-DROP TABLE IF EXISTS HITS;
+DROP TABLE IF EXISTS HITS_ROLLUP_MINUTE;
+DROP TABLE IF EXISTS HITS_ROLLUP_HOUR;
+DROP TABLE IF EXISTS HITS_ROLLUP_DAY;
+DROP TABLE IF EXISTS HITS_SKETCHES;
+DROP TABLE IF EXISTS HIT_COUNTERS;
+DROP TABLE IF EXISTS HIT_COUNTER_IPS;
+DROP TABLE IF EXISTS HIT_COMPACTION;
+DROP TABLE IF EXISTS HIT_ARCHIVE;
+DROP TABLE IF EXISTS HIT_APPS;
+DROP TABLE IF EXISTS HIT_URIS;
 DROP TABLE IF EXISTS USERS CASCADE;
 DROP TABLE IF EXISTS CATEGORIES CASCADE;
 DROP TABLE IF EXISTS LOCATIONS CASCADE;
@@ -7,11 +16,75 @@ DROP TABLE IF EXISTS COMPILATIONS CASCADE;
 DROP TABLE IF EXISTS COMPILATIONS_EVENTS CASCADE;
 DROP TABLE IF EXISTS COMMENTS CASCADE;
 
-CREATE TABLE IF NOT EXISTS HITS
+CREATE TABLE IF NOT EXISTS HIT_APPS
 (
-    ID        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    APP       VARCHAR(255)                NOT NULL,
-    URI       VARCHAR(255)                NOT NULL,
-    IP        VARCHAR(45)                NOT NULL,
-    TIMESTAMP TIMESTAMP WITHOUT TIME ZONE NOT NULL
+    ID   INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    NAME VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS HIT_URIS
+(
+    ID   INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    NAME VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS HITS_ROLLUP_MINUTE
+(
+    APP_ID INTEGER                     NOT NULL,
+    URI_ID INTEGER                     NOT NULL,
+    BUCKET TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    HITS   BIGINT                      NOT NULL,
+    PRIMARY KEY (URI_ID, BUCKET, APP_ID)
+);
+
+CREATE TABLE IF NOT EXISTS HITS_ROLLUP_HOUR
+(
+    APP_ID INTEGER                     NOT NULL,
+    URI_ID INTEGER                     NOT NULL,
+    BUCKET TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    HITS   BIGINT                      NOT NULL,
+    PRIMARY KEY (URI_ID, BUCKET, APP_ID)
+);
+
+CREATE TABLE IF NOT EXISTS HITS_ROLLUP_DAY
+(
+    APP_ID INTEGER                     NOT NULL,
+    URI_ID INTEGER                     NOT NULL,
+    BUCKET TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    HITS   BIGINT                      NOT NULL,
+    PRIMARY KEY (URI_ID, BUCKET, APP_ID)
+);
+
+CREATE TABLE IF NOT EXISTS HITS_SKETCHES
+(
+    GRANULARITY VARCHAR(8)                  NOT NULL,
+    APP_ID      INTEGER                     NOT NULL,
+    URI_ID      INTEGER                     NOT NULL,
+    BUCKET      TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    SKETCH      BYTEA                       NOT NULL,
+    PRIMARY KEY (GRANULARITY, URI_ID, BUCKET, APP_ID)
+);
+
+CREATE TABLE IF NOT EXISTS HIT_COUNTERS
+(
+    APP_ID     INTEGER                     NOT NULL,
+    URI_ID     INTEGER                     NOT NULL,
+    HITS       BIGINT                      NOT NULL,
+    FIRST_SEEN TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    LAST_SEEN  TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    PRIMARY KEY (URI_ID, APP_ID)
+);
+
+CREATE TABLE IF NOT EXISTS HIT_COMPACTION
+(
+    ID               INTEGER                     NOT NULL PRIMARY KEY,
+    COMPACTED_BEFORE TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS HIT_ARCHIVE
+(
+    ID              INTEGER                     NOT NULL PRIMARY KEY,
+    ARCHIVED_FROM   TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    ARCHIVED_BEFORE TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    MAX_HIT_ID      BIGINT                      NOT NULL
 );
\ No newline at end of file
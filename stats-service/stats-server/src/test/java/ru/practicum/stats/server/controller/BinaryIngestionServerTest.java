@@ -0,0 +1,200 @@
+package ru.practicum.stats.server.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.service.StatService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static ru.practicum.stats.dto.BinaryHitProtocol.ACK;
+import static ru.practicum.stats.dto.BinaryHitProtocol.DEFINE;
+import static ru.practicum.stats.dto.BinaryHitProtocol.HITS;
+import static ru.practicum.stats.dto.BinaryHitProtocol.KIND_APP;
+import static ru.practicum.stats.dto.BinaryHitProtocol.KIND_URI;
+
+class BinaryIngestionServerTest {
+    private static final int MAX_FRAME_BYTES = 1024;
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.parse("2024-01-02T03:04:05");
+
+    private final StatService statService = mock(StatService.class);
+    private final List<EndpointHit> saved = new CopyOnWriteArrayList<>();
+    private BinaryIngestionServer server;
+    private int port;
+
+    @BeforeEach
+    void start() throws IOException {
+        when(statService.saveDecodedHits(anyList())).thenAnswer(invocation -> {
+            saved.addAll(invocation.getArgument(0));
+            return 0;
+        });
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        server = new BinaryIngestionServer(statService, port, MAX_FRAME_BYTES, 10, 1);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+    }
+
+    @Test
+    void savesHitsAndAcknowledgesEachFrame() throws IOException {
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            out.write(define(KIND_APP, 0, "main"));
+            out.write(define(KIND_URI, 0, "/events/1"));
+            out.write(hits(hit(0, 0, "10.0.0.1"), hit(0, 7, "10.0.0.2"), hit(0, 0, "")));
+            assertArrayEquals(ack(1, 2), readAck(socket.getInputStream()));
+
+            out.write(define(KIND_URI, 1, "/events/é"));
+            out.write(hits(hit(0, 1, "héllo")));
+            assertArrayEquals(ack(1, 0), readAck(socket.getInputStream()));
+        }
+
+        assertEquals(2, saved.size());
+        assertEquals("main", saved.get(0).getApp());
+        assertEquals("/events/1", saved.get(0).getUri());
+        assertEquals("10.0.0.1", saved.get(0).getIp());
+        assertEquals(TIMESTAMP, saved.get(0).getTimestamp());
+        assertEquals("/events/é", saved.get(1).getUri());
+        assertEquals("héllo", saved.get(1).getIp());
+    }
+
+    @Test
+    void readsFramesSplitAcrossPackets() throws IOException {
+        byte[] frames = concat(define(KIND_APP, 0, "main"), define(KIND_URI, 0, "/events/1"),
+                hits(hit(0, 0, "10.0.0.1"), hit(0, 0, "10.0.0.2")));
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            for (byte value : frames) {
+                out.write(value);
+                out.flush();
+            }
+            assertArrayEquals(ack(2, 0), readAck(socket.getInputStream()));
+        }
+        assertEquals(2, saved.size());
+    }
+
+    @Test
+    void rejectsWholeBatchWhenSavingFails() throws IOException {
+        when(statService.saveDecodedHits(anyList())).thenThrow(new IllegalStateException("database is down"));
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            out.write(define(KIND_APP, 0, "main"));
+            out.write(define(KIND_URI, 0, "/events/1"));
+            out.write(hits(hit(0, 0, "10.0.0.1"), hit(0, 5, "10.0.0.2")));
+            assertArrayEquals(ack(0, 2), readAck(socket.getInputStream()));
+        }
+    }
+
+    @Test
+    void closesConnectionOnMalformedFrames() throws IOException {
+        ByteBuffer oversized = ByteBuffer.allocate(5).putInt(MAX_FRAME_BYTES + 1).put(HITS);
+        ByteBuffer unknownType = ByteBuffer.allocate(5).putInt(1).put((byte) 9);
+        ByteBuffer hugeCount = ByteBuffer.allocate(9).putInt(5).put(HITS).putInt(1000);
+        ByteBuffer trailingBytes = ByteBuffer.allocate(11).putInt(7).put(HITS).putInt(0).putShort((short) 0);
+        for (byte[] frame : List.of(oversized.array(), unknownType.array(), hugeCount.array(), trailingBytes.array(),
+                define(KIND_APP, 1, "skipped"), define((byte) 7, 0, "kind"), define(KIND_APP, 10, "full"))) {
+            try (Socket socket = connect()) {
+                socket.getOutputStream().write(frame);
+                assertClosed(socket.getInputStream());
+            }
+        }
+        assertTrue(saved.isEmpty());
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket();
+        socket.setSoTimeout(5000);
+        socket.connect(new InetSocketAddress("localhost", port), 5000);
+        return socket;
+    }
+
+    private static byte[] define(byte kind, int id, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(Integer.BYTES + 1 + 1 + Integer.BYTES + Short.BYTES + bytes.length)
+                .putInt(1 + 1 + Integer.BYTES + Short.BYTES + bytes.length)
+                .put(DEFINE)
+                .put(kind)
+                .putInt(id)
+                .putShort((short) bytes.length)
+                .put(bytes)
+                .array();
+    }
+
+    private static byte[] hit(int appId, int uriId, String ip) {
+        byte[] bytes = ip.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(2 * Integer.BYTES + Long.BYTES + 1 + bytes.length)
+                .putInt(appId)
+                .putInt(uriId)
+                .putLong(TIMESTAMP.toEpochSecond(ZoneOffset.UTC) * 1000)
+                .put((byte) bytes.length)
+                .put(bytes)
+                .array();
+    }
+
+    private static byte[] hits(byte[]... hits) {
+        byte[] payload = concat(hits);
+        return ByteBuffer.allocate(Integer.BYTES + 1 + Integer.BYTES + payload.length)
+                .putInt(1 + Integer.BYTES + payload.length)
+                .put(HITS)
+                .putInt(hits.length)
+                .put(payload)
+                .array();
+    }
+
+    private static byte[] ack(int accepted, int rejected) {
+        return ByteBuffer.allocate(Integer.BYTES + 1 + 2 * Integer.BYTES)
+                .putInt(1 + 2 * Integer.BYTES)
+                .put(ACK)
+                .putInt(accepted)
+                .putInt(rejected)
+                .array();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (byte[] part : parts) {
+            buffer.put(part);
+        }
+        return buffer.array();
+    }
+
+    private static byte[] readAck(InputStream in) throws IOException {
+        return in.readNBytes(Integer.BYTES + 1 + 2 * Integer.BYTES);
+    }
+
+    private static void assertClosed(InputStream in) throws IOException {
+        try {
+            assertEquals(-1, in.read());
+        } catch (SocketException e) {
+            assertTrue(e.getMessage().contains("reset"), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ru.practicum.stats.server.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.stats.server.model.RangePart;
+import ru.practicum.stats.server.repository.CompactionRepository;
+import ru.practicum.stats.server.storage.HitArchive;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static ru.practicum.stats.server.model.RollupGranularity.DAY;
+import static ru.practicum.stats.server.model.RollupGranularity.HOUR;
+import static ru.practicum.stats.server.model.RollupGranularity.MINUTE;
+
+class RollupPlannerTest {
+    private final CompactionRepository compactionRepository = mock(CompactionRepository.class);
+
+    @Test
+    void coversWholeBucketsWithCoarsestLevelsAndEdgesWithRawHits() {
+        RollupPlanner planner = new RollupPlanner(compactionRepository, Optional.empty());
+
+        List<RangePart> parts = planner.plan(time("2024-01-01T10:30:15"), time("2024-01-03T05:00:00"));
+
+        assertEquals(List.of(
+                new RangePart(null, time("2024-01-01T10:30:15"), time("2024-01-01T10:31:00"), false),
+                new RangePart(MINUTE, time("2024-01-01T10:31:00"), time("2024-01-01T11:00:00"), false),
+                new RangePart(HOUR, time("2024-01-01T11:00:00"), time("2024-01-02T00:00:00"), false),
+                new RangePart(DAY, time("2024-01-02T00:00:00"), time("2024-01-03T00:00:00"), false),
+                new RangePart(HOUR, time("2024-01-03T00:00:00"), time("2024-01-03T05:00:00"), false),
+                new RangePart(null, time("2024-01-03T05:00:00"), time("2024-01-03T05:00:00"), true)), parts);
+    }
+
+    @Test
+    void keepsRangesShorterThanMinuteRaw() {
+        RollupPlanner planner = new RollupPlanner(compactionRepository, Optional.empty());
+
+        List<RangePart> parts = planner.plan(time("2024-01-01T10:30:15"), time("2024-01-01T10:30:45"));
+
+        assertEquals(List.of(new RangePart(null, time("2024-01-01T10:30:15"), time("2024-01-01T10:30:45"), true)),
+                parts);
+    }
+
+    @Test
+    void widensCompactedEdgesToWholeMinutes() {
+        when(compactionRepository.isCompacted(any())).thenReturn(true);
+        RollupPlanner planner = new RollupPlanner(compactionRepository, Optional.empty());
+
+        List<RangePart> parts = planner.plan(time("2024-01-01T10:30:15"), time("2024-01-01T10:45:20"));
+
+        assertEquals(List.of(new RangePart(MINUTE, time("2024-01-01T10:30:00"), time("2024-01-01T10:46:00"), false)),
+                parts);
+    }
+
+    @Test
+    void keepsCompactedEdgesRawWhenArchived() {
+        when(compactionRepository.isCompacted(any())).thenReturn(true);
+        HitArchive hitArchive = mock(HitArchive.class);
+        when(hitArchive.covers(any())).thenReturn(true);
+        RollupPlanner planner = new RollupPlanner(compactionRepository, Optional.of(hitArchive));
+
+        List<RangePart> parts = planner.plan(time("2024-01-01T10:30:15"), time("2024-01-01T10:32:20"));
+
+        assertEquals(List.of(
+                new RangePart(null, time("2024-01-01T10:30:15"), time("2024-01-01T10:31:00"), false),
+                new RangePart(MINUTE, time("2024-01-01T10:31:00"), time("2024-01-01T10:32:00"), false),
+                new RangePart(null, time("2024-01-01T10:32:00"), time("2024-01-01T10:32:20"), true)), parts);
+    }
+
+    private static LocalDateTime time(String value) {
+        return LocalDateTime.parse(value);
+    }
+}
@@ -0,0 +1,91 @@
+package ru.practicum.stats.server.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.stats.server.model.AppUri;
+import ru.practicum.stats.server.model.ViewStats;
+import ru.practicum.stats.server.utils.HitSampling;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SampledStatsTest {
+    private static final AppUri KEY = new AppUri("app", "/events/1");
+
+    @Test
+    void estimatesWithNormalBoundsNeverBelowSample() {
+        SampledStats stats = new SampledStats(HitSampling.BUCKETS / 2);
+        stats.add(KEY, ip(1), 3);
+        stats.add(KEY, ip(2), 1);
+
+        ViewStats hits = stats.toViewStats(false).getFirst();
+        assertEquals(8, hits.getHits());
+        assertEquals(4, hits.getHitsLower());
+        assertEquals(17, hits.getHitsUpper());
+
+        ViewStats unique = stats.toViewStats(true).getFirst();
+        assertEquals(4, unique.getHits());
+        assertEquals(2, unique.getHitsLower());
+        assertEquals(8, unique.getHitsUpper());
+    }
+
+    @Test
+    void isExactWhenEveryBucketIsSampled() {
+        SampledStats stats = new SampledStats(HitSampling.BUCKETS);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(stats.isSampled(ip(i)));
+            stats.add(KEY, ip(i), i % 3 + 1);
+        }
+
+        ViewStats viewStats = stats.toViewStats(false).getFirst();
+        assertEquals(199, viewStats.getHits());
+        assertEquals(199, viewStats.getHitsLower());
+        assertEquals(199, viewStats.getHitsUpper());
+    }
+
+    @Test
+    void boundsCoverExactCountsAboutNinetyFivePercentOfTheTime() {
+        int trials = 400;
+        int ips = 2000;
+        SplittableRandom random = new SplittableRandom(42);
+        int coveredHits = 0;
+        int coveredUnique = 0;
+        for (int trial = 0; trial < trials; trial++) {
+            SampledStats stats = new SampledStats(HitSampling.buckets(0.1));
+            long exact = 0;
+            for (int i = 0; i < ips; i++) {
+                byte[] ip = ip(trial * ips + i);
+                long count = 1 + random.nextInt(20);
+                exact += count;
+                if (stats.isSampled(ip)) {
+                    stats.add(KEY, ip, count);
+                }
+            }
+            ViewStats hits = stats.toViewStats(false).getFirst();
+            ViewStats unique = stats.toViewStats(true).getFirst();
+            coveredHits += hits.getHitsLower() <= exact && exact <= hits.getHitsUpper() ? 1 : 0;
+            coveredUnique += unique.getHitsLower() <= ips && ips <= unique.getHitsUpper() ? 1 : 0;
+        }
+
+        assertTrue(coveredHits >= trials * 0.9, coveredHits + " of " + trials);
+        assertTrue(coveredUnique >= trials * 0.9, coveredUnique + " of " + trials);
+    }
+
+    @Test
+    void sortsByEstimateDescending() {
+        SampledStats stats = new SampledStats(HitSampling.BUCKETS);
+        stats.add(new AppUri("app", "/a"), ip(1), 1);
+        stats.add(new AppUri("app", "/b"), ip(1), 5);
+        stats.add(new AppUri("app", "/c"), ip(1), 3);
+
+        List<String> uris = stats.toViewStats(false).stream().map(ViewStats::getUri).toList();
+        assertEquals(List.of("/b", "/c", "/a"), uris);
+    }
+
+    private static byte[] ip(int i) {
+        return ByteBuffer.allocate(Integer.BYTES).putInt(i).array();
+    }
+}
@@ -0,0 +1,108 @@
+package ru.practicum.stats.server.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentTest {
+    private static final int CAPACITY = 4096;
+    private static final byte[] APP = "app".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] IP = {10, 0, 0, 1};
+    private static final int RECORD_BYTES = 4 + 4 + 8 + 2 + APP.length + 2 + "/events/0".length() + 2 + IP.length;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void recoversAppendedRecordsAfterReopen() throws IOException {
+        Path path = directory.resolve("0.seg");
+        try (Segment segment = Segment.open(path, 0, CAPACITY, 2)) {
+            appendAll(segment, 5);
+        }
+
+        try (Segment segment = Segment.open(path, 0, CAPACITY, 2)) {
+            assertEquals(List.of("0 /events/0", "1 /events/1", "2 /events/2", "3 /events/3", "4 /events/4"),
+                    scan(segment, 0, Long.MAX_VALUE));
+            assertEquals(List.of("1 /events/1", "2 /events/2", "3 /events/3"), scan(segment, 1, 3));
+            assertTrue(segment.overlaps(4, 10));
+            assertFalse(segment.overlaps(5, 10));
+        }
+    }
+
+    @Test
+    void dropsTornTailOnRecovery() throws IOException {
+        Path path = directory.resolve("0.seg");
+        try (Segment segment = Segment.open(path, 0, CAPACITY, 2)) {
+            appendAll(segment, 3);
+        }
+        write(path, 3 * RECORD_BYTES - 1, (byte) 0x7f);
+
+        try (Segment segment = Segment.open(path, 0, CAPACITY, 2)) {
+            assertEquals(List.of("0 /events/0", "1 /events/1"), scan(segment, 0, Long.MAX_VALUE));
+            assertTrue(segment.append(7, APP, uri(7), IP));
+        }
+
+        try (Segment segment = Segment.open(path, 0, CAPACITY, 2)) {
+            assertEquals(List.of("0 /events/0", "1 /events/1", "7 /events/7"), scan(segment, 0, Long.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void stopsAtLengthPastTheEnd() throws IOException {
+        Path path = directory.resolve("0.seg");
+        try (Segment segment = Segment.open(path, 0, CAPACITY, 2)) {
+            appendAll(segment, 2);
+        }
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES).putInt(0, CAPACITY);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(length, 2 * RECORD_BYTES);
+        }
+
+        try (Segment segment = Segment.open(path, 0, CAPACITY, 2)) {
+            assertEquals(List.of("0 /events/0", "1 /events/1"), scan(segment, 0, Long.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void refusesRecordsThatDoNotFit() throws IOException {
+        try (Segment segment = Segment.open(directory.resolve("0.seg"), 0, 2 * RECORD_BYTES + Integer.BYTES, 2)) {
+            assertTrue(segment.append(0, APP, uri(0), IP));
+            assertTrue(segment.append(1, APP, uri(1), IP));
+            assertFalse(segment.append(2, APP, uri(2), IP));
+        }
+    }
+
+    private static void appendAll(Segment segment, int count) {
+        for (int i = 0; i < count; i++) {
+            assertTrue(segment.append(i, APP, uri(i), IP));
+        }
+    }
+
+    private static byte[] uri(int i) {
+        return ("/events/" + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> scan(Segment segment, long from, long to) {
+        List<String> hits = new ArrayList<>();
+        segment.scan(from, to, (timestamp, app, uri, ip) -> hits.add(timestamp + " " + uri));
+        return hits;
+    }
+
+    private static void write(Path path, long position, byte value) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{value}), position);
+        }
+    }
+}
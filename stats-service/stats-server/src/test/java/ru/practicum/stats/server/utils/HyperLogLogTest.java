@@ -0,0 +1,68 @@
+package ru.practicum.stats.server.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimatesWithinErrorBound() {
+        assertEquals(0, new HyperLogLog().estimate());
+        for (int distinct : new int[]{10, 1_000, 100_000, 1_000_000}) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (int i = 0; i < distinct; i++) {
+                sketch.offer(ip(i));
+                sketch.offer(ip(i));
+            }
+            double error = Math.abs(sketch.estimate() - distinct) / (double) distinct;
+            assertTrue(error < 0.05, distinct + " estimated as " + sketch.estimate());
+        }
+    }
+
+    @Test
+    void mergeEqualsSketchOfUnion() {
+        HyperLogLog left = new HyperLogLog();
+        HyperLogLog right = new HyperLogLog();
+        HyperLogLog union = new HyperLogLog();
+        for (int i = 0; i < 50_000; i++) {
+            (i % 2 == 0 ? left : right).offer(ip(i));
+            union.offer(ip(i));
+        }
+        right.offer(ip(0));
+
+        HyperLogLog merged = left.copy();
+        merged.merge(right);
+
+        assertTrue(merged.sameRegisters(union));
+        assertEquals(union.estimate(), merged.estimate());
+        assertTrue(left.estimate() < merged.estimate());
+    }
+
+    @Test
+    void survivesSerialization() {
+        HyperLogLog sparse = new HyperLogLog();
+        HyperLogLog dense = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            if (i < 100) {
+                sparse.offer(ip(i));
+            }
+            dense.offer(ip(i));
+        }
+
+        byte[] sparseBytes = sparse.toBytes();
+        byte[] denseBytes = dense.toBytes();
+
+        assertTrue(sparseBytes.length < denseBytes.length);
+        assertTrue(HyperLogLog.fromBytes(sparseBytes).sameRegisters(sparse));
+        assertTrue(HyperLogLog.fromBytes(denseBytes).sameRegisters(dense));
+        assertTrue(HyperLogLog.fromBytes(new HyperLogLog().toBytes()).sameRegisters(new HyperLogLog()));
+    }
+
+    private static byte[] ip(int i) {
+        return ByteBuffer.allocate(Integer.BYTES).putInt(i).array();
+    }
+}
@@ -0,0 +1,47 @@
+package ru.practicum.stats.server.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class IpAddressesTest {
+
+    @Test
+    void encodesIpv4AsFourBytes() throws Exception {
+        assertArrayEquals(InetAddress.getByName("192.168.0.255").getAddress(), IpAddresses.toBytes("192.168.0.255"));
+        assertArrayEquals(IpAddresses.toBytes("10.0.0.1"), IpAddresses.toBytes(" 10.0.0.1 "));
+    }
+
+    @Test
+    void encodesIpv4MappedIpv6AsIpv4() {
+        assertArrayEquals(IpAddresses.toBytes("1.2.3.4"), IpAddresses.toBytes("::ffff:1.2.3.4"));
+        assertArrayEquals(IpAddresses.toBytes("1.2.3.4"), IpAddresses.toBytes("::FFFF:0102:0304"));
+    }
+
+    @Test
+    void encodesEveryIpv6SpellingTheSame() throws Exception {
+        byte[] expected = InetAddress.getByName("2001:db8::1").getAddress();
+        assertArrayEquals(expected, IpAddresses.toBytes("2001:db8::1"));
+        assertArrayEquals(expected, IpAddresses.toBytes("2001:0DB8:0000:0000:0000:0000:0000:0001"));
+        assertArrayEquals(expected, IpAddresses.toBytes("2001:db8:0:0::1"));
+        assertArrayEquals(expected, IpAddresses.toBytes("2001:db8::1%eth0"));
+        assertArrayEquals(new byte[16], IpAddresses.toBytes("::"));
+        assertArrayEquals(InetAddress.getByName("::1.2.3.4").getAddress(), IpAddresses.toBytes("::1.2.3.4"));
+    }
+
+    @Test
+    void hashesOtherValuesIntoDiscardPrefix() {
+        for (String value : new String[]{"unknown", "1.2.3.256", "1.2.3", "01234.1.1.1", "1::2::3", "1:2:3:4:5:6:7:8:9",
+                "12345::1", "::g", "héllo"}) {
+            byte[] bytes = IpAddresses.toBytes(value);
+            assertEquals(16, bytes.length, value);
+            assertArrayEquals(new byte[]{1, 0, 0, 0, 0, 0, 0, 0}, Arrays.copyOf(bytes, 8), value);
+        }
+        assertFalse(Arrays.equals(IpAddresses.toBytes("unknown"), IpAddresses.toBytes("unknown2")));
+    }
+}
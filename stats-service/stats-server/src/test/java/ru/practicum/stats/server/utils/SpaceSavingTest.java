@@ -0,0 +1,68 @@
+package ru.practicum.stats.server.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingTest {
+
+    @Test
+    void countsExactlyWithinCapacity() {
+        SpaceSaving<String> summary = new SpaceSaving<>(3);
+        summary.offer("a", 1);
+        summary.offer("b", 5);
+        summary.offer("a", 3);
+        summary.offer("c", 2);
+
+        assertEquals(List.of(new SpaceSaving.Entry<>("b", 5, 0), new SpaceSaving.Entry<>("a", 4, 0),
+                new SpaceSaving.Entry<>("c", 2, 0)), summary.entries());
+    }
+
+    @Test
+    void replacesSmallestCounterAndKeepsItsCountAsError() {
+        SpaceSaving<String> summary = new SpaceSaving<>(2);
+        summary.offer("a", 5);
+        summary.offer("b", 2);
+        summary.offer("c", 1);
+
+        assertEquals(List.of(new SpaceSaving.Entry<>("a", 5, 0), new SpaceSaving.Entry<>("c", 3, 2)),
+                summary.entries());
+    }
+
+    @Test
+    void tracksEveryHeavyHitterWithBoundedError() {
+        int capacity = 50;
+        SpaceSaving<Integer> summary = new SpaceSaving<>(capacity);
+        Map<Integer, Long> exact = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(42);
+        long total = 0;
+        for (int i = 0; i < 200_000; i++) {
+            int key = (int) Math.floor(Math.pow(10_000, random.nextDouble()));
+            long increment = 1 + random.nextInt(3);
+            summary.offer(key, increment);
+            exact.merge(key, increment, Long::sum);
+            total += increment;
+        }
+
+        Map<Integer, SpaceSaving.Entry<Integer>> tracked = new HashMap<>();
+        for (SpaceSaving.Entry<Integer> entry : summary.entries()) {
+            tracked.put(entry.key(), entry);
+            long actual = exact.get(entry.key());
+            assertTrue(entry.count() >= actual && entry.count() - entry.error() <= actual, entry.toString());
+            assertTrue(entry.error() <= total / capacity, entry.toString());
+        }
+        assertEquals(capacity, tracked.size());
+        for (Map.Entry<Integer, Long> count : exact.entrySet()) {
+            if (count.getValue() > total / capacity) {
+                assertNotNull(tracked.get(count.getKey()), count.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ru.practicum.stats.server.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    @Test
+    void startsFullAndReportsWaitWhenEmpty() {
+        TokenBucket bucket = new TokenBucket(1, 10);
+
+        assertEquals(0, bucket.tryConsume(10));
+
+        long waitNanos = bucket.tryConsume(1);
+        assertTrue(waitNanos > TimeUnit.MILLISECONDS.toNanos(900) && waitNanos <= TimeUnit.SECONDS.toNanos(1),
+                String.valueOf(waitNanos));
+    }
+
+    @Test
+    void letsOversizedRequestThroughIntoDebt() {
+        TokenBucket bucket = new TokenBucket(1, 10);
+
+        assertEquals(0, bucket.tryConsume(25));
+
+        long waitNanos = bucket.tryConsume(1);
+        assertTrue(waitNanos > TimeUnit.SECONDS.toNanos(15) && waitNanos <= TimeUnit.SECONDS.toNanos(16),
+                String.valueOf(waitNanos));
+    }
+
+    @Test
+    void takesBackRefundedTokens() {
+        TokenBucket bucket = new TokenBucket(1, 10);
+        assertEquals(0, bucket.tryConsume(10));
+
+        bucket.refund(4);
+
+        assertEquals(0, bucket.tryConsume(4));
+        assertTrue(bucket.tryConsume(1) > 0);
+    }
+
+    @Test
+    void refillsOverTimeUpToCapacity() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1000, 10);
+        assertEquals(0, bucket.tryConsume(10));
+
+        Thread.sleep(50);
+
+        assertEquals(0, bucket.tryConsume(10));
+        assertTrue(bucket.tryConsume(5) > 0);
+    }
+}